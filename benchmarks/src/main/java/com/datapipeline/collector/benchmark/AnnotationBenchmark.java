@@ -0,0 +1,71 @@
+package com.datapipeline.collector.benchmark;
+
+import com.datapipeline.collector.metric.Config;
+import com.datapipeline.collector.metric.MetricReporter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @MCounter/@MHistogram 生成代码相对未织入方法的开销.
+ * InstrumentedService 未被注解处理器织入时各方法与 plain() 无异,setup 阶段直接失败而不是输出无意义的结果.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnnotationBenchmark {
+
+    private MetricReporter reporter;
+    private InstrumentedService service;
+
+    @Setup
+    public void setup() {
+        checkWoven();
+        reporter = new MetricReporter(new Config());
+        reporter.initEnv(SdkMeterProvider.builder().registerMetricReader(new BenchmarkReader()).build());
+        service = new InstrumentedService();
+    }
+
+    private static void checkWoven() {
+        int instruments = 0;
+        for (Field field : InstrumentedService.class.getDeclaredFields()) {
+            if (field.getName().startsWith("$metric")) {
+                instruments++;
+            }
+        }
+        if (instruments != 3) {
+            throw new IllegalStateException("InstrumentedService is not woven by the collector-sdk annotation processor, expected 3 generated $metric fields but found "
+                    + instruments + ", check annotationProcessorPaths in benchmarks/pom.xml");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        reporter.shutdown();
+    }
+
+    @Benchmark
+    public long plain() {
+        return service.plain();
+    }
+
+    @Benchmark
+    public long counted() {
+        return service.counted();
+    }
+
+    @Benchmark
+    public long timed() {
+        return service.timed();
+    }
+
+    @Benchmark
+    public long timedWithOutcome() {
+        return service.timedWithOutcome();
+    }
+}
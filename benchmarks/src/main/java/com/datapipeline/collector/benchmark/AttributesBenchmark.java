@@ -0,0 +1,73 @@
+package com.datapipeline.collector.benchmark;
+
+import com.datapipeline.collector.metric.AttributesCache;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "k=v" 字符串数组转换为 Attributes:MetricReporter.buildAttribute 使用的缓存命中、缓存频繁淘汰,以及每次重新构建的基线
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class AttributesBenchmark {
+
+    private static final int DISTINCT = 4096;
+
+    @Param({"1", "4", "8"})
+    public int size;
+
+    private AttributesCache cache;
+    private String[] attributes;
+    private String[][] distinct;
+    private int next;
+
+    @Setup
+    public void setup() {
+        cache = new AttributesCache(1024);
+        attributes = attributes(size, 0);
+        distinct = new String[DISTINCT][];
+        for (int i = 0; i < DISTINCT; i++) {
+            distinct[i] = attributes(size, i);
+        }
+    }
+
+    private static String[] attributes(int size, int seed) {
+        String[] attributes = new String[size];
+        for (int i = 0; i < size; i++) {
+            attributes[i] = "key" + i + "=value" + (i == 0 ? seed : i);
+        }
+        return attributes;
+    }
+
+    @Benchmark
+    public Attributes cacheHit() {
+        return cache.get(attributes);
+    }
+
+    /**
+     * 属性组合数远超缓存容量,几乎每次都未命中并替换旧条目
+     */
+    @Benchmark
+    public Attributes cacheMiss() {
+        next = (next + 1) & (DISTINCT - 1);
+        return cache.get(distinct[next]);
+    }
+
+    @Benchmark
+    public Attributes rebuild() {
+        AttributesBuilder builder = Attributes.builder();
+        for (String attr : attributes) {
+            int index = attr.indexOf('=');
+            builder.put(AttributeKey.stringKey(attr.substring(0, index)), attr.substring(index + 1));
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,43 @@
+package com.datapipeline.collector.benchmark;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+import io.opentelemetry.sdk.metrics.internal.export.MetricProducer;
+
+import java.util.Collection;
+
+/**
+ * 不导出的 MetricReader,基准测试中按需手动采集
+ */
+public class BenchmarkReader implements MetricReader {
+
+    private volatile MetricProducer metricProducer = MetricProducer.noop();
+
+    @Override
+    public void register(CollectionRegistration registration) {
+        this.metricProducer = MetricProducer.asMetricProducer(registration);
+    }
+
+    public Collection<MetricData> collectAllMetrics() {
+        return metricProducer.collectAllMetrics();
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return AggregationTemporality.CUMULATIVE;
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return CompletableResultCode.ofSuccess();
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        return CompletableResultCode.ofSuccess();
+    }
+}
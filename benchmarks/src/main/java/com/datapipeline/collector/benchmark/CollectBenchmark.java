@@ -0,0 +1,66 @@
+package com.datapipeline.collector.benchmark;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一次 collectAllMetrics 的耗时与分配,序列数按计数器与直方图各占一半.
+ * SDK 1.26 每个指标最多保留 2000 个序列,因此每个指标最多放 1000 个序列,按序列总数向上取整创建多个指标.
+ * 直接在 SdkMeterProvider 上创建指标,不注册 JVM 及自身指标,采集结果只包含基准指标
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectBenchmark {
+
+    private static final AttributeKey<String> SERIES_KEY = AttributeKey.stringKey("series");
+    private static final int SERIES_PER_INSTRUMENT = 1000;
+
+    @Param({"1000", "10000", "100000"})
+    public int series;
+
+    private BenchmarkReader reader;
+    private SdkMeterProvider sdk;
+
+    @Setup
+    public void setup() {
+        reader = new BenchmarkReader();
+        sdk = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        Meter meter = sdk.get("benchmark");
+        int seriesPerKind = series / 2;
+        int seriesPerInstrument = Math.min(seriesPerKind, SERIES_PER_INSTRUMENT);
+        int instruments = (seriesPerKind + seriesPerInstrument - 1) / seriesPerInstrument;
+        for (int instrument = 0; instrument < instruments; instrument++) {
+            LongCounter counter = meter.counterBuilder("collect.records." + instrument).setUnit("1").build();
+            DoubleHistogram histogram = meter.histogramBuilder("collect.latency." + instrument).setUnit("ms").build();
+            int count = Math.min(seriesPerInstrument, seriesPerKind - instrument * seriesPerInstrument);
+            for (int i = 0; i < count; i++) {
+                Attributes attributes = Attributes.of(SERIES_KEY, "s" + i);
+                counter.add(i, attributes);
+                histogram.record(i % 100, attributes);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        sdk.close();
+    }
+
+    @Benchmark
+    public Collection<MetricData> collectAllMetrics() {
+        return reader.collectAllMetrics();
+    }
+}
@@ -0,0 +1,175 @@
+package com.datapipeline.collector.benchmark;
+
+import com.datapipeline.collector.failover.FailoverMetricReader;
+import com.datapipeline.collector.failover.PipelineStats;
+import com.datapipeline.collector.metric.Config;
+import com.datapipeline.collector.metric.CounterHandle;
+import com.datapipeline.collector.metric.MetricReporter;
+import com.sun.net.httpserver.HttpServer;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端导出压测:为每个 endpoint 启动一个进程内 OTLP gRPC 接收端,用合成序列驱动 {@link FailoverMetricReader},
+ * 按 健康 → 本机接收端故障 → 恢复 三个阶段运行,输出吞吐、导出延迟、数据丢失以及故障切换与恢复耗时.
+ * backlog 已满时合并掉的点是有意丢弃的中间值,单独输出,不计入丢失.
+ *
+ * <p>本机接收端监听 127.0.0.1,远端依次为 127.0.0.2、127.0.0.3…,Linux 默认可用,macOS 需要先添加 lo0 别名.
+ * 本机健康检查同样在 127.0.0.1:13133/status 上模拟,故障期间返回 503.
+ *
+ * <pre>
+ * java -cp benchmarks/target/benchmarks.jar com.datapipeline.collector.benchmark.ExportLoadHarness \
+ *     --series=10000 --interval=1000 --duration=60 --latency=0 --errorRate=0 --remotes=2
+ * </pre>
+ */
+public class ExportLoadHarness {
+
+    private static final AttributeKey<String> SERIES_KEY = AttributeKey.stringKey("series");
+    private static final int SERIES_PER_INSTRUMENT = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (arg.startsWith("--") && eq > 2) {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        int series = Integer.parseInt(options.getOrDefault("series", "10000"));
+        long intervalMillis = Long.parseLong(options.getOrDefault("interval", "1000"));
+        long durationMillis = TimeUnit.SECONDS.toMillis(Long.parseLong(options.getOrDefault("duration", "60")));
+        long latencyMillis = Long.parseLong(options.getOrDefault("latency", "0"));
+        double errorRate = Double.parseDouble(options.getOrDefault("errorRate", "0"));
+        int remotes = Integer.parseInt(options.getOrDefault("remotes", "2"));
+        int port = Integer.parseInt(options.getOrDefault("port", "14317"));
+
+        List<OtlpStandInServer> servers = new ArrayList<>();
+        StringBuilder endpoints = new StringBuilder();
+        for (int i = 0; i <= remotes; i++) {
+            OtlpStandInServer server = new OtlpStandInServer("127.0.0." + (i + 1), port).start();
+            server.setLatencyMillis(latencyMillis);
+            server.setErrorRate(errorRate);
+            servers.add(server);
+            endpoints.append(i == 0 ? "" : ",").append(server.getEndpoint());
+        }
+        OtlpStandInServer local = servers.get(0);
+        HttpServer health = HttpServer.create(new InetSocketAddress("127.0.0.1", 13133), 0);
+        health.createContext("/status", exchange -> {
+            exchange.sendResponseHeaders(local.isDown() ? 503 : 200, -1);
+            exchange.close();
+        });
+        health.start();
+
+        Config config = new Config();
+        config.setEndpoint(endpoints.toString());
+        config.setCardinalityLimit(0);
+        config.setTimeout(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(intervalMillis)));
+        config.setCircuitOpenDuration(Math.max(1, TimeUnit.MILLISECONDS.toSeconds(durationMillis) / 10));
+        config.setRetryBackoff(Math.max(10, intervalMillis / 10));
+        FailoverMetricReader reader = FailoverMetricReader.builder(config)
+                .setHostname("127.0.0.1")
+                .setInterval(intervalMillis, TimeUnit.MILLISECONDS)
+                .build();
+        SdkMeterProvider sdk = SdkMeterProvider.builder().registerMetricReader(reader).build();
+        MetricReporter reporter = new MetricReporter(config);
+        reporter.initEnv(sdk);
+
+        List<CounterHandle> counters = new ArrayList<>();
+        List<Attributes> attributes = new ArrayList<>();
+        for (int i = 0; i < SERIES_PER_INSTRUMENT; i++) {
+            attributes.add(Attributes.of(SERIES_KEY, "s" + i));
+        }
+        for (int i = 0; i < Math.max(1, series / SERIES_PER_INSTRUMENT); i++) {
+            counters.add(reporter.counter("harness", "records." + i, "1", ""));
+        }
+        int seriesPerInstrument = Math.min(series, SERIES_PER_INSTRUMENT);
+        Thread workload = new Thread(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (!Thread.currentThread().isInterrupted()) {
+                counters.get(random.nextInt(counters.size())).add(1, attributes.get(random.nextInt(seriesPerInstrument)));
+            }
+        }, "harness-workload");
+        workload.setDaemon(true);
+        workload.start();
+
+        long start = System.nanoTime();
+        sleepUntil(start, durationMillis * 3 / 10);
+        local.setDown(true);
+        long outage = System.nanoTime();
+        long failoverMillis = awaitAccepted(servers.subList(1, servers.size()), outage, start, durationMillis * 6 / 10);
+        sleepUntil(start, durationMillis * 6 / 10);
+        local.setDown(false);
+        long restore = System.nanoTime();
+        long recoverMillis = awaitAccepted(servers.subList(0, 1), restore, start, durationMillis);
+        sleepUntil(start, durationMillis);
+        workload.interrupt();
+        workload.join();
+        sdk.shutdown().join(30, TimeUnit.SECONDS);
+        long elapsedNanos = System.nanoTime() - start;
+
+        PipelineStats stats = reader.getPipelineStats();
+        long received = 0;
+        for (OtlpStandInServer server : servers) {
+            received += server.getPoints();
+        }
+        long collected = stats.getCollectedPoints();
+        long merged = reader.getBacklogMergedPoints();
+        long lost = Math.max(0, collected - merged - received);
+        System.out.printf("series=%d interval=%dms duration=%ds latency=%dms errorRate=%.2f%n",
+                series, intervalMillis, TimeUnit.MILLISECONDS.toSeconds(durationMillis), latencyMillis, errorRate);
+        System.out.printf("collections=%d collected=%d merged=%d (%d collections) received=%d lost=%d (%.3f%%) failedChunks=%d%n",
+                stats.getCollections(), collected, merged, reader.getBacklogMerged(), received, lost,
+                collected == 0 ? 0.0 : 100.0 * lost / collected, stats.getFailedChunks());
+        System.out.printf("throughput=%.0f points/s exports=%d avgExportLatency=%.2fms%n",
+                received * 1e9 / elapsedNanos, stats.getExports(),
+                stats.getExports() == 0 ? 0.0 : stats.getExportNanos() / 1e6 / stats.getExports());
+        System.out.printf("failovers=%d recoveries=%d timeToFailover=%s timeToRecover=%s%n",
+                stats.getFailovers(), stats.getRecoveries(), format(failoverMillis), format(recoverMillis));
+        for (OtlpStandInServer server : servers) {
+            System.out.printf("  %s requests=%d rejected=%d points=%d bytes=%d%n", server.getEndpoint(),
+                    server.getRequests(), server.getRejected(), server.getPoints(), server.getBytes());
+        }
+
+        health.stop(0);
+        for (OtlpStandInServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    /**
+     * 等待任一接收端在 since 之后成功接收数据,返回耗时毫秒数;在 deadline 之前未发生返回 -1
+     */
+    private static long awaitAccepted(List<OtlpStandInServer> servers, long since, long start, long deadlineMillis)
+            throws InterruptedException {
+        while (System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(deadlineMillis)) {
+            for (OtlpStandInServer server : servers) {
+                long accepted = server.getLastAcceptedNanos();
+                if (accepted - since > 0) {
+                    return TimeUnit.NANOSECONDS.toMillis(accepted - since);
+                }
+            }
+            Thread.sleep(10);
+        }
+        return -1;
+    }
+
+    private static void sleepUntil(long start, long offsetMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(offsetMillis) - (System.nanoTime() - start);
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+    }
+
+    private static String format(long millis) {
+        return millis < 0 ? "n/a" : millis + "ms";
+    }
+}
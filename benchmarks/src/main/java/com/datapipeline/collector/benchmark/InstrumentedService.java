@@ -0,0 +1,31 @@
+package com.datapipeline.collector.benchmark;
+
+import com.datapipeline.collector.annotation.MCounter;
+import com.datapipeline.collector.annotation.MHistogram;
+
+/**
+ * 由 collector-sdk 的注解处理器在编译期织入计数与计时代码的被测方法
+ */
+public class InstrumentedService {
+
+    private long state;
+
+    public long plain() {
+        return ++state;
+    }
+
+    @MCounter(tag = "benchmark", metric = "annotated.calls", attribute = {"task=ingest"})
+    public long counted() {
+        return ++state;
+    }
+
+    @MHistogram(tag = "benchmark", metric = "annotated.latency", attribute = {"task=ingest"})
+    public long timed() {
+        return ++state;
+    }
+
+    @MHistogram(tag = "benchmark", metric = "annotated.outcome.latency", attribute = {"task=ingest"}, outcome = true)
+    public long timedWithOutcome() {
+        return ++state;
+    }
+}
@@ -0,0 +1,81 @@
+package com.datapipeline.collector.benchmark;
+
+/**
+ * 直接在 protobuf 编码上统计 ExportMetricsServiceRequest 中的数据点数,不依赖生成的 proto 类.
+ *
+ * <p>路径: request.resource_metrics(1) → scope_metrics(2) → metrics(2) → gauge(5)/sum(7)/histogram(9)/
+ * exponential_histogram(10)/summary(11) → data_points(1).
+ */
+final class OtlpPayload {
+
+    private OtlpPayload() {
+    }
+
+    static long countPoints(byte[] data) {
+        return count(data, new int[]{0}, data.length, 0);
+    }
+
+    private static long count(byte[] data, int[] pos, int end, int depth) {
+        long points = 0;
+        while (pos[0] < end) {
+            long key = varint(data, pos);
+            int field = (int) (key >>> 3);
+            int wireType = (int) (key & 7);
+            if (wireType != 2) {
+                skip(data, pos, wireType);
+                continue;
+            }
+            int length = (int) varint(data, pos);
+            int next = pos[0] + length;
+            if (depth == 4) {
+                if (field == 1) {
+                    points++;
+                }
+            } else if (descend(depth, field)) {
+                points += count(data, pos, next, depth + 1);
+            }
+            pos[0] = next;
+        }
+        return points;
+    }
+
+    private static boolean descend(int depth, int field) {
+        switch (depth) {
+            case 0:
+                return field == 1;
+            case 1:
+            case 2:
+                return field == 2;
+            default:
+                return field == 5 || field == 7 || field == 9 || field == 10 || field == 11;
+        }
+    }
+
+    private static long varint(byte[] data, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("malformed varint");
+    }
+
+    private static void skip(byte[] data, int[] pos, int wireType) {
+        switch (wireType) {
+            case 0:
+                varint(data, pos);
+                break;
+            case 1:
+                pos[0] += 8;
+                break;
+            case 5:
+                pos[0] += 4;
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported wire type " + wireType);
+        }
+    }
+}
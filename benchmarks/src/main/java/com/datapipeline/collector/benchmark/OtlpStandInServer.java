@@ -0,0 +1,153 @@
+package com.datapipeline.collector.benchmark;
+
+import io.grpc.MethodDescriptor;
+import io.grpc.Server;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.Status;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.stub.ServerCalls;
+import io.grpc.stub.StreamObserver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内的 OTLP gRPC 接收端,只统计收到的请求、字节与数据点,可注入延迟、随机错误与整体不可用
+ */
+public class OtlpStandInServer {
+
+    private static final String SERVICE = "opentelemetry.proto.collector.metrics.v1.MetricsService";
+    private static final byte[] EMPTY_RESPONSE = new byte[0];
+    private static final MethodDescriptor.Marshaller<byte[]> BYTES = new MethodDescriptor.Marshaller<byte[]>() {
+        @Override
+        public InputStream stream(byte[] value) {
+            return new ByteArrayInputStream(value);
+        }
+
+        @Override
+        public byte[] parse(InputStream stream) {
+            try {
+                ByteArrayOutputStream output = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = stream.read(buffer)) != -1) {
+                    output.write(buffer, 0, read);
+                }
+                return output.toByteArray();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    };
+
+    private final String host;
+    private final int port;
+    private final ScheduledExecutorService delayer = Executors.newSingleThreadScheduledExecutor();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder points = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private volatile long latencyMillis;
+    private volatile double errorRate;
+    private volatile boolean down;
+    private volatile long lastAcceptedNanos;
+    private Server server;
+
+    public OtlpStandInServer(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    public OtlpStandInServer start() throws IOException {
+        MethodDescriptor<byte[], byte[]> export = MethodDescriptor.<byte[], byte[]>newBuilder()
+                .setType(MethodDescriptor.MethodType.UNARY)
+                .setFullMethodName(MethodDescriptor.generateFullMethodName(SERVICE, "Export"))
+                .setRequestMarshaller(BYTES)
+                .setResponseMarshaller(BYTES)
+                .build();
+        ServerServiceDefinition service = ServerServiceDefinition.builder(SERVICE)
+                .addMethod(export, ServerCalls.asyncUnaryCall(this::export))
+                .build();
+        server = NettyServerBuilder.forAddress(new InetSocketAddress(host, port)).addService(service).build().start();
+        return this;
+    }
+
+    private void export(byte[] request, StreamObserver<byte[]> response) {
+        requests.increment();
+        Runnable reply = () -> {
+            if (down || errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                rejected.increment();
+                response.onError(Status.UNAVAILABLE.withDescription("injected failure").asRuntimeException());
+                return;
+            }
+            bytes.add(request.length);
+            points.add(OtlpPayload.countPoints(request));
+            lastAcceptedNanos = System.nanoTime();
+            response.onNext(EMPTY_RESPONSE);
+            response.onCompleted();
+        };
+        long latency = latencyMillis;
+        if (latency > 0) {
+            delayer.schedule(reply, latency, TimeUnit.MILLISECONDS);
+        } else {
+            reply.run();
+        }
+    }
+
+    public void shutdown() throws InterruptedException {
+        if (server != null) {
+            server.shutdownNow();
+            server.awaitTermination(5, TimeUnit.SECONDS);
+        }
+        delayer.shutdownNow();
+    }
+
+    public String getEndpoint() {
+        return host + ":" + port;
+    }
+
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    public void setErrorRate(double errorRate) {
+        this.errorRate = errorRate;
+    }
+
+    public void setDown(boolean down) {
+        this.down = down;
+    }
+
+    public boolean isDown() {
+        return down;
+    }
+
+    public long getLastAcceptedNanos() {
+        return lastAcceptedNanos;
+    }
+
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getPoints() {
+        return points.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+}
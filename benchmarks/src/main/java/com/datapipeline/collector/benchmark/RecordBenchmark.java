@@ -0,0 +1,71 @@
+package com.datapipeline.collector.benchmark;
+
+import com.datapipeline.collector.metric.Config;
+import com.datapipeline.collector.metric.MetricReporter;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * MetricReporter 记录路径:不带属性、"k=v" 字符串数组属性与预先构建的 Attributes
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecordBenchmark {
+
+    private static final String[] STRING_ATTRIBUTES = {"task=ingest", "stage=sink", "table=orders"};
+    private static final Attributes ATTRIBUTES = Attributes.of(
+            AttributeKey.stringKey("task"), "ingest",
+            AttributeKey.stringKey("stage"), "sink",
+            AttributeKey.stringKey("table"), "orders");
+
+    private MetricReporter reporter;
+
+    @Setup
+    public void setup() {
+        reporter = new MetricReporter(new Config());
+        reporter.initEnv(SdkMeterProvider.builder().registerMetricReader(new BenchmarkReader()).build());
+    }
+
+    @TearDown
+    public void tearDown() {
+        reporter.shutdown();
+    }
+
+    @Benchmark
+    public void recordCounter() {
+        reporter.recordCounter("benchmark", "records");
+    }
+
+    @Benchmark
+    public void recordCounterStringAttributes() {
+        reporter.recordCounter("benchmark", "records", "1", "", STRING_ATTRIBUTES);
+    }
+
+    @Benchmark
+    public void recordCounterAttributes() {
+        reporter.recordCounter("benchmark", "records", "1", "", ATTRIBUTES);
+    }
+
+    @Benchmark
+    public void recordHistogram() {
+        reporter.recordHistogram("benchmark", "latency", 12.5);
+    }
+
+    @Benchmark
+    public void recordHistogramStringAttributes() {
+        reporter.recordHistogram("benchmark", "latency", 12.5, "ms", "", STRING_ATTRIBUTES);
+    }
+
+    @Benchmark
+    public void recordHistogramAttributes() {
+        reporter.recordHistogram("benchmark", "latency", 12.5, "ms", "", ATTRIBUTES);
+    }
+}
@@ -0,0 +1,83 @@
+package com.datapipeline.collector.benchmark;
+
+import com.datapipeline.collector.metric.Config;
+import com.datapipeline.collector.metric.CounterHandle;
+import com.datapipeline.collector.metric.MetricReporter;
+import com.datapipeline.collector.metric.StripedCounterHandle;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 同一组属性高频计数时,现有 recordCounter(String[]) 路径、预绑定句柄与分段本地累加计数器的对比.
+ * 多线程下 recordCounter 与预绑定句柄共享SDK内同一序列的聚合器,分段计数器只在本地累加.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StripedCounterBenchmark {
+
+    private static final String[] ATTRIBUTE_PAIRS = {"task=ingest"};
+    private static final Attributes ATTRIBUTES = Attributes.of(AttributeKey.stringKey("task"), "ingest");
+
+    private BenchmarkReader reader;
+    private MetricReporter reporter;
+    private CounterHandle.Bound bound;
+    private StripedCounterHandle.Bound striped;
+
+    @Setup
+    public void setup() {
+        reader = new BenchmarkReader();
+        reporter = new MetricReporter(new Config());
+        reporter.initEnv(SdkMeterProvider.builder().registerMetricReader(reader).build());
+        bound = reporter.counter("benchmark", "records", "1", "").bind(ATTRIBUTES);
+        striped = reporter.stripedCounter("benchmark", "striped.records", "1", "").bind(ATTRIBUTES);
+    }
+
+    @TearDown
+    public void tearDown() {
+        reporter.shutdown();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void recordCounter() {
+        reporter.recordCounter("benchmark", "records", "1", "", ATTRIBUTE_PAIRS);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordCounter4Threads() {
+        reporter.recordCounter("benchmark", "records", "1", "", ATTRIBUTE_PAIRS);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void boundCounter() {
+        bound.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void boundCounter4Threads() {
+        bound.increment();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void stripedCounter() {
+        striped.increment();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void stripedCounter4Threads() {
+        striped.increment();
+    }
+}
@@ -4,6 +4,7 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
 
 @Target(ElementType.METHOD)
 @Retention(RetentionPolicy.RUNTIME)
@@ -17,4 +18,14 @@ public @interface MHistogram {
     String unit() default "";
 
     String description() default "";
+
+    /**
+     * 耗时的输出单位,计时基于 System.nanoTime(),unit 为空时按该单位填充
+     */
+    TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+
+    /**
+     * 为 true 时附加 outcome=success|error 属性,异常时同时附加 exception=异常类名
+     */
+    boolean outcome() default false;
 }
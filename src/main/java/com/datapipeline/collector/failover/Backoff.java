@@ -0,0 +1,25 @@
+package com.datapipeline.collector.failover;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 带随机抖动的指数退避.
+ */
+final class Backoff {
+
+    private Backoff() {
+    }
+
+    /**
+     * 第 attempt 次(从 0 开始)重试前的等待时间:上限为 min(max, base * 2^attempt),在上限的一半到上限之间随机取值,
+     * 避免大量实例在同一时刻重试.
+     */
+    static long delay(long base, long max, int attempt) {
+        long ceiling = base << Math.min(attempt, 30);
+        if (ceiling <= 0 || ceiling > max) {
+            ceiling = max;
+        }
+        long half = ceiling / 2;
+        return half + ThreadLocalRandom.current().nextLong(ceiling - half + 1);
+    }
+}
@@ -0,0 +1,95 @@
+package com.datapipeline.collector.failover;
+
+import java.util.function.LongSupplier;
+
+/**
+ * 单个 endpoint 的熔断器,由导出结果驱动.
+ *
+ * <p>连续失败达到阈值后进入 OPEN,在打开期间不再选择该 endpoint;打开时间到期后进入 HALF_OPEN 并只放行一次试探导出,
+ * 试探成功则恢复 CLOSED,失败则重新打开,打开时间按指数退避并叠加随机抖动.
+ */
+final class CircuitBreaker {
+
+    enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String endpoint;
+    private final int failureThreshold;
+    private final long openMillis;
+    private final long maxOpenMillis;
+    private final LongSupplier clock;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private int opened;
+    private long openUntil;
+    private boolean trial;
+
+    CircuitBreaker(String endpoint, int failureThreshold, long openMillis, long maxOpenMillis) {
+        this(endpoint, failureThreshold, openMillis, maxOpenMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock 毫秒时钟,测试时可替换
+     */
+    CircuitBreaker(String endpoint, int failureThreshold, long openMillis, long maxOpenMillis, LongSupplier clock) {
+        this.endpoint = endpoint;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMillis = openMillis;
+        this.maxOpenMillis = Math.max(openMillis, maxOpenMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * 是否允许向该 endpoint 导出. OPEN 状态到期后转为 HALF_OPEN,并只允许一次试探.
+     */
+    synchronized boolean allowRequest() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (clock.getAsLong() < openUntil) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                trial = true;
+                return true;
+            default:
+                if (trial) {
+                    return false;
+                }
+                trial = true;
+                return true;
+        }
+    }
+
+    synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        opened = 0;
+        trial = false;
+    }
+
+    synchronized void onFailure() {
+        failures++;
+        if (state == State.HALF_OPEN || failures >= failureThreshold) {
+            state = State.OPEN;
+            openUntil = clock.getAsLong() + Backoff.delay(openMillis, maxOpenMillis, opened++);
+            trial = false;
+        }
+    }
+
+    synchronized State getState() {
+        return state;
+    }
+
+    String getEndpoint() {
+        return endpoint;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "CircuitBreaker{endpoint=" + endpoint + ", state=" + state + ", failures=" + failures + '}';
+    }
+}
@@ -0,0 +1,118 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 上一次导出尚未完成时暂存采集结果的有界队列.
+ *
+ * <p>队列已满时新的采集结果按序列合并到最新的待导出批次中,而不是整批丢弃;合并后的批次导出完成时通知所有参与合并的调用方.
+ */
+final class ExportBacklog {
+
+    private final int capacity;
+    private final ArrayDeque<Batch> pending = new ArrayDeque<>();
+    private boolean exporting;
+    private long merged;
+    private long mergedPoints;
+
+    ExportBacklog(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * 当前没有进行中的导出时返回需要立即导出的批次,否则放入队列并返回 null.
+     */
+    synchronized Batch offer(Collection<MetricData> metricData, CompletableResultCode result) {
+        if (!exporting) {
+            exporting = true;
+            return new Batch(metricData, result);
+        }
+        if (pending.size() < capacity) {
+            pending.addLast(new Batch(metricData, result));
+        } else {
+            mergedPoints += pending.peekLast().merge(metricData, result);
+            merged++;
+        }
+        return null;
+    }
+
+    /**
+     * 上一批导出完成后获取下一批,队列为空时返回 null 并标记导出空闲.
+     */
+    synchronized Batch next() {
+        Batch batch = pending.pollFirst();
+        if (batch == null) {
+            exporting = false;
+        }
+        return batch;
+    }
+
+    synchronized List<Batch> drain() {
+        List<Batch> batches = new ArrayList<>(pending);
+        pending.clear();
+        return batches;
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    synchronized long getMerged() {
+        return merged;
+    }
+
+    /**
+     * 合并时被同一序列较新的点覆盖或累加而不再单独导出的点数
+     */
+    synchronized long getMergedPoints() {
+        return mergedPoints;
+    }
+
+    private static int points(Collection<MetricData> metricData) {
+        int points = 0;
+        for (MetricData metric : metricData) {
+            points += metric.getData().getPoints().size();
+        }
+        return points;
+    }
+
+    static final class Batch {
+        private Collection<MetricData> metricData;
+        private final List<CompletableResultCode> results = new ArrayList<>(1);
+
+        private Batch(Collection<MetricData> metricData, CompletableResultCode result) {
+            this.metricData = metricData;
+            this.results.add(result);
+        }
+
+        /**
+         * 返回合并掉的点数
+         */
+        private int merge(Collection<MetricData> newer, CompletableResultCode result) {
+            int before = points(metricData) + points(newer);
+            this.metricData = MetricDataMerger.merge(metricData, newer);
+            this.results.add(result);
+            return before - points(metricData);
+        }
+
+        Collection<MetricData> getMetricData() {
+            return metricData;
+        }
+
+        void complete(boolean success) {
+            for (CompletableResultCode result : results) {
+                if (success) {
+                    result.succeed();
+                } else {
+                    result.fail();
+                }
+            }
+        }
+    }
+}
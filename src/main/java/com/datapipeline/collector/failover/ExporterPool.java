@@ -0,0 +1,61 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.export.MetricExporter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 每个 endpoint 一个长期存活的 exporter.
+ *
+ * <p>切换 endpoint 时只替换引用,底层连接保持复用;可选在启动时发送一次空导出提前建立连接,关闭时统一释放.
+ */
+final class ExporterPool {
+    private static final Logger logger = Logger.getLogger(ExporterPool.class.getName());
+
+    private final ConcurrentMap<String, MetricExporter> exporters = new ConcurrentHashMap<>();
+    private final Function<String, MetricExporter> factory;
+    private volatile boolean shutdown;
+
+    ExporterPool(Function<String, MetricExporter> factory) {
+        this.factory = factory;
+    }
+
+    MetricExporter get(String endpoint) {
+        if (shutdown) {
+            throw new IllegalStateException("exporter pool is shut down");
+        }
+        return exporters.computeIfAbsent(endpoint, factory);
+    }
+
+    /**
+     * 为每个 endpoint 创建 exporter 并发送一次空导出,使连接在第一次切换前就已建立.
+     */
+    void warmUp(Collection<String> endpoints) {
+        for (String endpoint : endpoints) {
+            try {
+                get(endpoint).export(Collections.emptyList());
+            } catch (RuntimeException e) {
+                logger.log(Level.FINE, "Warm up exporter failed for " + endpoint, e);
+            }
+        }
+    }
+
+    CompletableResultCode shutdown() {
+        shutdown = true;
+        List<CompletableResultCode> results = new ArrayList<>();
+        for (MetricExporter exporter : exporters.values()) {
+            results.add(exporter.shutdown());
+        }
+        exporters.clear();
+        return CompletableResultCode.ofAll(results);
+    }
+}
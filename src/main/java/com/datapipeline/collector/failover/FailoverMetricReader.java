@@ -1,8 +1,10 @@
 package com.datapipeline.collector.failover;
 
 import com.datapipeline.collector.metric.Config;
+import io.opentelemetry.exporter.otlp.http.metrics.OtlpHttpMetricExporter;
 import io.opentelemetry.exporter.otlp.metrics.OtlpGrpcMetricExporter;
 import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.internal.DaemonThreadFactory;
 import io.opentelemetry.sdk.metrics.Aggregation;
 import io.opentelemetry.sdk.metrics.InstrumentType;
 import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
@@ -10,23 +12,42 @@ import io.opentelemetry.sdk.metrics.data.MetricData;
 import io.opentelemetry.sdk.metrics.export.*;
 import io.opentelemetry.sdk.metrics.internal.export.MetricProducer;
 
+import java.io.File;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
 
 public class FailoverMetricReader implements MetricReader {
     private static final Logger logger = Logger.getLogger(FailoverMetricReader.class.getName());
 
-    private MetricExporter exporter;
+    private volatile MetricExporter exporter;
+    private final ExporterPool exporterPool;
+    private final boolean exporterPrewarm;
     private final long intervalNanos;
     private final ScheduledExecutorService scheduler;
+    /**
+     * scheduler 是否由该 reader 独占,共享的 scheduler 在关闭时只取消任务
+     */
+    private final boolean ownsScheduler;
+    private final boolean scheduleAlign;
+    private final String scheduleSpreadKey;
+    private final long scheduleJitterNanos;
     private final FailoverMetricReader.Scheduled scheduled;
     private final Object lock = new Object();
 
@@ -34,9 +55,38 @@ public class FailoverMetricReader implements MetricReader {
     private volatile ScheduledFuture<?> scheduledFuture;
     private final String[] endpoint;
     private final long timeout;
-    private int index = -1;
     private final String hostname;
     private String localEndpoint;
+    /**
+     * 候选 endpoint,第一个固定为本机 collector
+     */
+    private final List<String> endpoints = new ArrayList<>();
+    private final CircuitBreaker[] breakers;
+    private volatile int current;
+    private final ScheduledExecutorService prober;
+    private final int probeTimeout;
+    private final int exportRetries;
+    private final long retryBackoff;
+    private final long exportChunkBytes;
+    private final int exportParallelism;
+    private final AggregationTemporalitySelector temporalitySelector;
+    private final List<Runnable> collectionListeners;
+    private final boolean httpTransport;
+    private final String compression;
+    private final String scheme;
+    private final TransportStats transportStats;
+    private final PipelineStats pipelineStats;
+    private final Aggregation histogramAggregation;
+    private final MetricSpool spool;
+    private final int spoolReplayRate;
+    private final int spoolReplayPort;
+    private volatile boolean healthy;
+    /**
+     * shutdown 开始后置位,之后失败的分片不再重试或切换 endpoint,直接写入 spool
+     */
+    private volatile boolean closed;
+    private final ExportBacklog backlog;
+    private final long flushTimeout;
 
     public static FailoverMetricReader create(Config config) {
         return builder(config).build();
@@ -48,25 +98,111 @@ public class FailoverMetricReader implements MetricReader {
     }
 
     FailoverMetricReader(
-            Config config, String hostname, long intervalNanos, ScheduledExecutorService scheduler) {
+            Config config, String hostname, long intervalNanos, ScheduledExecutorService scheduler,
+            boolean ownsScheduler, List<Runnable> collectionListeners) {
         this.hostname = hostname;
+        this.collectionListeners = collectionListeners;
+        this.temporalitySelector = temporalitySelector(config.getTemporality());
         this.timeout = config.getTimeout();
         this.endpoint = config.getEndpoint().split(",");
         this.intervalNanos = intervalNanos;
         this.scheduler = scheduler;
+        this.ownsScheduler = ownsScheduler;
+        this.scheduleAlign = config.isScheduleAlign();
+        this.scheduleSpreadKey = config.isScheduleSpread() ? config.getInstance() : null;
+        this.scheduleJitterNanos = TimeUnit.MILLISECONDS.toNanos(config.getScheduleJitter());
         this.scheduled = new FailoverMetricReader.Scheduled();
+        if ("exponential".equalsIgnoreCase(config.getHistogramAggregation())) {
+            this.histogramAggregation = Aggregation.base2ExponentialBucketHistogram(
+                    config.getExponentialHistogramMaxBuckets(), config.getExponentialHistogramMaxScale());
+        } else {
+            this.histogramAggregation = null;
+        }
+        if (config.isSpoolEnabled()) {
+            this.spool = new MetricSpool(new File(config.getSpoolDirectory()), config.getSpoolMaxBytes(),
+                    config.getSpoolSegmentBytes(), TimeUnit.SECONDS.toMillis(config.getSpoolMaxAge()));
+        } else {
+            this.spool = null;
+        }
+        this.spoolReplayRate = config.getSpoolReplayRate();
+        this.spoolReplayPort = config.getSpoolReplayPort();
+        this.backlog = new ExportBacklog(config.getExportBacklogSize());
+        this.flushTimeout = config.getFlushTimeout();
+        this.httpTransport = "http/protobuf".equalsIgnoreCase(config.getTransport());
+        this.compression = compression(config.getCompression());
+        this.scheme = config.isTls() ? "https" : "http";
+        this.transportStats = new TransportStats("gzip".equals(compression), config.getTransportStatsSampling());
+        this.exporterPool = new ExporterPool(this::newExporter);
+        this.exporterPrewarm = config.isExporterPrewarm();
+        this.probeTimeout = config.getProbeTimeout();
+        this.exportRetries = config.getExportRetries();
+        this.retryBackoff = config.getRetryBackoff();
+        this.exportChunkBytes = config.getExportChunkBytes();
+        this.exportParallelism = config.getExportParallelism();
+        this.prober = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("FailoverMetricReader-probe"));
         this.initExporter();
+        long openMillis = TimeUnit.SECONDS.toMillis(config.getCircuitOpenDuration());
+        this.breakers = new CircuitBreaker[endpoints.size()];
+        for (int i = 0; i < breakers.length; i++) {
+            breakers[i] = new CircuitBreaker(endpoints.get(i), config.getCircuitFailureThreshold(), openMillis, openMillis * 10);
+        }
+        this.pipelineStats = new PipelineStats(this.localEndpoint);
     }
 
     private void initExporter() {
-        this.localEndpoint = hostname.concat(":4317");
+        this.localEndpoint = hostname.concat(httpTransport ? ":4318" : ":4317");
         for (String et : endpoint) {
             if (et.startsWith(hostname)) {
                 this.localEndpoint = et;
                 break;
             }
         }
-        this.exporter = OtlpGrpcMetricExporter.builder().setEndpoint(format(this.localEndpoint)).setTimeout(Duration.ofSeconds(timeout)).build();
+        endpoints.add(localEndpoint);
+        for (String et : endpoint) {
+            if (!endpoints.contains(et)) {
+                endpoints.add(et);
+            }
+        }
+        this.exporter = exporterPool.get(this.localEndpoint);
+    }
+
+    private static String compression(String compression) {
+        if ("gzip".equalsIgnoreCase(compression)) {
+            return "gzip";
+        }
+        if (compression == null || compression.isEmpty() || "none".equalsIgnoreCase(compression)) {
+            return "none";
+        }
+        throw new IllegalArgumentException("Unsupported collector.sdk.compression " + compression + ", expected gzip or none");
+    }
+
+    private MetricExporter newExporter(String endpoint) {
+        if (httpTransport) {
+            return OtlpHttpMetricExporter.builder().setEndpoint(format(endpoint).concat("/v1/metrics"))
+                    .setTimeout(Duration.ofSeconds(timeout)).setCompression(compression).build();
+        }
+        return OtlpGrpcMetricExporter.builder().setEndpoint(format(endpoint))
+                .setTimeout(Duration.ofSeconds(timeout)).setCompression(compression).build();
+    }
+
+    public TransportStats getTransportStats() {
+        return transportStats;
+    }
+
+    public PipelineStats getPipelineStats() {
+        return pipelineStats;
+    }
+
+    public int getBacklogSize() {
+        return backlog.size();
+    }
+
+    public long getBacklogMerged() {
+        return backlog.getMerged();
+    }
+
+    public long getBacklogMergedPoints() {
+        return backlog.getMergedPoints();
     }
 
     @Override
@@ -75,6 +211,29 @@ public class FailoverMetricReader implements MetricReader {
         start();
     }
 
+    /**
+     * 创建一个指标分组的 reader,注册到该分组独立的 SdkMeterProvider 上.
+     *
+     * <p>分组按自己的周期采集,导出复用当前 reader 的 exporter、endpoint 切换、backlog 与 spool;
+     * 分组 reader 关闭时只停止自己的采集,必须先于当前 reader 关闭.
+     *
+     * @param collectionListener 分组每次采集后在采集线程上调用,可以为 null
+     */
+    public MetricReader newGroupReader(String group, long interval, TimeUnit unit, Runnable collectionListener) {
+        return new GroupMetricReader(this, group, unit.toNanos(interval), collectionListener);
+    }
+
+    ScheduledFuture<?> schedule(Runnable task, long intervalNanos) {
+        long offsetNanos = scheduleSpreadKey == null ? 0 : SharedScheduler.spreadOffsetNanos(scheduleSpreadKey, intervalNanos);
+        long initialDelayNanos = SharedScheduler.initialDelayNanos(intervalNanos, System.currentTimeMillis(),
+                scheduleAlign, offsetNanos, scheduleJitterNanos);
+        return scheduler.scheduleAtFixedRate(task, initialDelayNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    CompletableResultCode collectAndExport(String group, MetricProducer producer, List<Runnable> listeners) {
+        return scheduled.collectAndExport(group, producer, listeners);
+    }
+
     @Override
     public CompletableResultCode forceFlush() {
         return scheduled.doRun();
@@ -82,44 +241,91 @@ public class FailoverMetricReader implements MetricReader {
 
     @Override
     public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        if (temporalitySelector != null) {
+            return temporalitySelector.getAggregationTemporality(instrumentType);
+        }
         return exporter.getAggregationTemporality(instrumentType);
     }
 
+    /**
+     * 根据 collector.sdk.temporality 返回聚合时间性,cumulative 或未配置时返回 null 表示沿用 exporter 的默认值.
+     *
+     * <p>delta: Counter、Histogram 及异步 Counter 使用 delta,UpDownCounter 保持 cumulative;
+     * lowmemory: 只有同步 Counter 与 Histogram 使用 delta,SDK 每个周期结束后即可释放这些序列.
+     */
+    public static AggregationTemporalitySelector temporalitySelector(String temporality) {
+        if ("delta".equalsIgnoreCase(temporality)) {
+            return AggregationTemporalitySelector.deltaPreferred();
+        }
+        if ("lowmemory".equalsIgnoreCase(temporality)) {
+            return instrumentType -> instrumentType == InstrumentType.COUNTER || instrumentType == InstrumentType.HISTOGRAM
+                    ? AggregationTemporality.DELTA : AggregationTemporality.CUMULATIVE;
+        }
+        return null;
+    }
+
     @Override
     public Aggregation getDefaultAggregation(InstrumentType instrumentType) {
+        if (instrumentType == InstrumentType.HISTOGRAM && histogramAggregation != null) {
+            return histogramAggregation;
+        }
         return exporter.getDefaultAggregation(instrumentType);
     }
 
-    private void failover() {
-        //访问本地的collector失败进行failover选择
-        for (int i = 0; i < endpoint.length; i++) {
-            if (index < i && !endpoint[i].equals(this.localEndpoint)) {
-                exporter = OtlpGrpcMetricExporter.builder().setEndpoint(format(this.endpoint[i])).setTimeout(Duration.ofSeconds(timeout)).build();
-                index = i;
-                logger.log(Level.INFO, "failover to remote endpoint " + this.endpoint[i]);
-                break;
+    private synchronized void failover(int failed) {
+        //当前endpoint熔断后,从下一个开始循环选择熔断器允许访问的endpoint
+        if (closed || current != failed) {
+            return;
+        }
+        for (int step = 1; step < endpoints.size(); step++) {
+            int next = (failed + step) % endpoints.size();
+            if (breakers[next].allowRequest()) {
+                switchTo(next);
+                return;
             }
         }
+        logger.log(Level.WARNING, "all endpoints unavailable, keep using " + endpoints.get(failed));
+    }
+
+    private synchronized void switchTo(int next) {
+        exporter = exporterPool.get(endpoints.get(next));
+        current = next;
+        pipelineStats.onSwitch(endpoints.get(next), next == 0);
+        logger.log(Level.INFO, "failover to endpoint " + endpoints.get(next));
     }
 
     @Override
     public CompletableResultCode shutdown() {
         CompletableResultCode result = new CompletableResultCode();
+        closed = true;
         ScheduledFuture<?> scheduledFuture = this.scheduledFuture;
         if (scheduledFuture != null) {
             scheduledFuture.cancel(false);
         }
-        scheduler.shutdown();
+        prober.shutdownNow();
         try {
-            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            if (ownsScheduler) {
+                scheduler.shutdown();
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            }
             CompletableResultCode flushResult = scheduled.doRun();
-            flushResult.join(5, TimeUnit.SECONDS);
+            flushResult.join(flushTimeout, TimeUnit.SECONDS);
         } catch (InterruptedException e) {
             // force a shutdown if the export hasn't finished.
-            scheduler.shutdownNow();
+            if (ownsScheduler) {
+                scheduler.shutdownNow();
+            }
             // reset the interrupted status
             Thread.currentThread().interrupt();
         } finally {
+            if (spool != null) {
+                // 超过期限仍未导出的批次写入 spool,下次启动后回放
+                for (ExportBacklog.Batch batch : backlog.drain()) {
+                    spool.append(batch.getMetricData());
+                    batch.complete(false);
+                }
+                spool.close();
+            }
             CompletableResultCode shutdownResult = scheduled.shutdown();
             shutdownResult.whenComplete(
                     () -> {
@@ -148,31 +354,106 @@ public class FailoverMetricReader implements MetricReader {
             if (scheduledFuture != null) {
                 return;
             }
-            scheduledFuture = scheduler.scheduleAtFixedRate(scheduled, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
-            scheduler.scheduleAtFixedRate(() -> {
-                //endpoint与本机的endpoint不一致,探测本地的collector是否可用,
-                if (index != -1) {
-                    try {
-                        HttpURLConnection connection = (HttpURLConnection) new URL(format(hostname.concat(":13133/status"))).openConnection();
-                        connection.setRequestMethod("GET");
-                        if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
-                            exporter = OtlpGrpcMetricExporter.builder().setEndpoint(format(this.localEndpoint)).setTimeout(Duration.ofSeconds(timeout)).build();
-                            logger.log(Level.INFO, "access local endpoint " + this.localEndpoint);
-                            index = -1;
-                        } else {
-                            logger.log(Level.SEVERE, "access local endpoint failed");
-                        }
-                        connection.disconnect();
-                    } catch (Exception e) {
-                        logger.log(Level.SEVERE, "access local endpoint failed");
-                    }
-                }
-            }, 1, 10, TimeUnit.SECONDS);
+            scheduledFuture = schedule(scheduled, intervalNanos);
+            if (exporterPrewarm) {
+                prober.execute(() -> exporterPool.warmUp(endpoints));
+            }
+            // 探测与回放都是阻塞的 HTTP 调用,放在独立线程上执行,不占用共享 scheduler,不影响各 reader 的采集与导出
+            prober.scheduleWithFixedDelay(this::probe, 1, 10, TimeUnit.SECONDS);
+            if (spool != null) {
+                prober.scheduleAtFixedRate(this::replay, 1, 1, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private void probe() {
+        //endpoint与本机的endpoint不一致,探测本地的collector是否可用,
+        if (closed || current == 0 || !breakers[0].allowRequest()) {
+            return;
+        }
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL("http://" + hostname.concat(":13133/status")).openConnection();
+            connection.setRequestMethod("GET");
+            connection.setConnectTimeout(probeTimeout);
+            connection.setReadTimeout(probeTimeout);
+            if (connection.getResponseCode() == HttpURLConnection.HTTP_OK) {
+                logger.log(Level.INFO, "access local endpoint " + this.localEndpoint);
+                switchTo(0);
+            } else {
+                breakers[0].onFailure();
+                logger.log(Level.SEVERE, "access local endpoint failed");
+            }
+        } catch (Exception e) {
+            breakers[0].onFailure();
+            logger.log(Level.SEVERE, "access local endpoint failed");
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+    }
+
+    /**
+     * 最近一次导出成功后按序回放 spool 中的批次,每秒最多 spoolReplayRate 个,遇到失败停止等待下一轮.
+     */
+    private void replay() {
+        for (int i = 0; i < spoolReplayRate && healthy; i++) {
+            byte[] data = spool.peek();
+            if (data == null) {
+                return;
+            }
+            if (!post(data)) {
+                return;
+            }
+            spool.commit();
         }
     }
 
+    private boolean post(byte[] data) {
+        String target = endpoints.get(current);
+        String url;
+        if (httpTransport) {
+            url = format(target).concat("/v1/metrics");
+        } else {
+            int colon = target.lastIndexOf(':');
+            String host = colon > 0 ? target.substring(0, colon) : target;
+            url = "http://" + host + ":" + spoolReplayPort + "/v1/metrics";
+        }
+        boolean gzip = "gzip".equals(compression);
+        HttpURLConnection connection = null;
+        try {
+            connection = (HttpURLConnection) new URL(url).openConnection();
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout((int) TimeUnit.SECONDS.toMillis(timeout));
+            connection.setReadTimeout((int) TimeUnit.SECONDS.toMillis(timeout));
+            connection.setRequestProperty("Content-Type", "application/x-protobuf");
+            if (gzip) {
+                connection.setRequestProperty("Content-Encoding", "gzip");
+                connection.setChunkedStreamingMode(0);
+            } else {
+                connection.setFixedLengthStreamingMode(data.length);
+            }
+            try (OutputStream output = gzip ? new GZIPOutputStream(connection.getOutputStream()) : connection.getOutputStream()) {
+                output.write(data);
+            }
+            int code = connection.getResponseCode();
+            if (code / 100 == 2) {
+                return true;
+            }
+            logger.log(Level.WARNING, "Replay spooled metrics failed, status " + code);
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Replay spooled metrics failed", e);
+        } finally {
+            if (connection != null) {
+                connection.disconnect();
+            }
+        }
+        return false;
+    }
+
     private final class Scheduled implements Runnable {
-        private final AtomicBoolean exportAvailable = new AtomicBoolean(true);
 
         private Scheduled() {
         }
@@ -185,44 +466,152 @@ public class FailoverMetricReader implements MetricReader {
 
         // Runs a collect + export cycle.
         CompletableResultCode doRun() {
+            return collectAndExport(PipelineStats.DEFAULT_GROUP, metricProducer, collectionListeners);
+        }
+
+        CompletableResultCode collectAndExport(String group, MetricProducer producer, List<Runnable> listeners) {
             CompletableResultCode flushResult = new CompletableResultCode();
-            if (exportAvailable.compareAndSet(true, false)) {
-                try {
-                    Collection<MetricData> metricData = metricProducer.collectAllMetrics();
-                    if (metricData.isEmpty()) {
-                        logger.log(Level.FINE, "No metric data to export - skipping export.");
-                        flushResult.succeed();
-                        exportAvailable.set(true);
+            try {
+                long start = System.nanoTime();
+                Collection<MetricData> metricData = producer.collectAllMetrics();
+                pipelineStats.onCollect(group, System.nanoTime() - start, metricData);
+                for (Runnable listener : listeners) {
+                    listener.run();
+                }
+                if (metricData.isEmpty()) {
+                    logger.log(Level.FINE, "No metric data to export - skipping export.");
+                    flushResult.succeed();
+                } else {
+                    ExportBacklog.Batch batch = backlog.offer(metricData, flushResult);
+                    if (batch != null) {
+                        export(batch);
                     } else {
-                        CompletableResultCode result = exporter.export(metricData);
-                        result.whenComplete(
-                                () -> {
-                                    if (!result.isSuccess()) {
-                                        failover();
-                                        logger.log(Level.FINE, "Exporter failed");
-                                    }
-                                    flushResult.succeed();
-                                    exportAvailable.set(true);
-                                });
+                        pipelineStats.onQueued();
+                        logger.log(Level.FINE, "Exporter busy. Metrics queued in backlog.");
                     }
-                } catch (Throwable t) {
-                    exportAvailable.set(true);
-                    logger.log(Level.WARNING, "Exporter threw an Exception", t);
-                    flushResult.fail();
                 }
-            } else {
-                logger.log(Level.FINE, "Exporter busy. Dropping metrics.");
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, "Collector threw an Exception", t);
                 flushResult.fail();
             }
             return flushResult;
         }
 
+        // Exports the batch, then keeps draining the backlog until it is empty.
+        private void export(ExportBacklog.Batch batch) {
+            if (batch == null) {
+                return;
+            }
+            ChunkedExport export = new ChunkedExport(MetricChunker.split(batch.getMetricData(), exportChunkBytes));
+            export.result.whenComplete(
+                    () -> {
+                        batch.complete(export.result.isSuccess());
+                        export(backlog.next());
+                    });
+            export.start();
+        }
+
         CompletableResultCode shutdown() {
-            return exporter.shutdown();
+            return exporterPool.shutdown();
+        }
+    }
+
+    /**
+     * 一个批次拆分后的并发导出,同时最多 exportParallelism 个分片在途,失败的分片单独重试,全部完成后汇总为一个结果.
+     */
+    private final class ChunkedExport {
+        private final Queue<Collection<MetricData>> pending;
+        private final AtomicInteger remaining;
+        private final AtomicBoolean failed = new AtomicBoolean();
+        private final CompletableResultCode result = new CompletableResultCode();
+
+        private ChunkedExport(List<Collection<MetricData>> chunks) {
+            this.pending = new ConcurrentLinkedQueue<>(chunks);
+            this.remaining = new AtomicInteger(chunks.size());
+        }
+
+        private void start() {
+            int parallelism = Math.min(Math.max(1, exportParallelism), pending.size());
+            for (int i = 0; i < parallelism; i++) {
+                next();
+            }
+        }
+
+        private void next() {
+            Collection<MetricData> chunk = pending.poll();
+            if (chunk != null) {
+                attempt(chunk, 0);
+            }
+        }
+
+        private void attempt(Collection<MetricData> chunk, int attempt) {
+            int target = current;
+            long start = System.nanoTime();
+            CompletableResultCode exportResult;
+            try {
+                exportResult = exporterPool.get(endpoints.get(target)).export(chunk);
+            } catch (Throwable t) {
+                logger.log(Level.WARNING, "Exporter threw an Exception", t);
+                exportResult = CompletableResultCode.ofFailure();
+            }
+            CompletableResultCode chunkResult = exportResult;
+            chunkResult.whenComplete(
+                    () -> {
+                        healthy = chunkResult.isSuccess();
+                        pipelineStats.onExport(endpoints.get(target), System.nanoTime() - start, chunkResult.isSuccess());
+                        if (chunkResult.isSuccess()) {
+                            breakers[target].onSuccess();
+                            transportStats.record(endpoints.get(target), chunk);
+                            done(true);
+                            return;
+                        }
+                        breakers[target].onFailure();
+                        if (breakers[target].getState() != CircuitBreaker.State.CLOSED) {
+                            failover(target);
+                        }
+                        logger.log(Level.FINE, "Exporter failed");
+                        if (attempt < exportRetries && retry(chunk, attempt + 1)) {
+                            return;
+                        }
+                        if (spool != null) {
+                            spool.append(chunk);
+                        }
+                        pipelineStats.onFailedChunk();
+                        done(false);
+                    });
+        }
+
+        // 退避时间不超过采集间隔的一半,避免重试与下一轮采集堆积
+        private boolean retry(Collection<MetricData> chunk, int attempt) {
+            if (closed) {
+                return false;
+            }
+            long delay = Backoff.delay(retryBackoff, Math.max(retryBackoff, TimeUnit.NANOSECONDS.toMillis(intervalNanos) / 2), attempt - 1);
+            try {
+                scheduler.schedule(() -> attempt(chunk, attempt), delay, TimeUnit.MILLISECONDS);
+                return true;
+            } catch (RejectedExecutionException e) {
+                return false;
+            }
+        }
+
+        private void done(boolean success) {
+            if (!success) {
+                failed.set(true);
+            }
+            if (remaining.decrementAndGet() == 0) {
+                if (failed.get()) {
+                    result.fail();
+                } else {
+                    result.succeed();
+                }
+            } else {
+                next();
+            }
         }
     }
 
     private String format(String hostname) {
-        return String.format("http://%s", hostname);
+        return String.format("%s://%s", scheme, hostname);
     }
 }
@@ -1,10 +1,10 @@
 package com.datapipeline.collector.failover;
 
 import com.datapipeline.collector.metric.Config;
-import io.opentelemetry.sdk.internal.DaemonThreadFactory;
 
 import java.time.Duration;
-import java.util.concurrent.Executors;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
@@ -15,6 +15,7 @@ public class FailoverMetricReaderBuilder {
     private long intervalNanos = TimeUnit.MINUTES.toNanos(DEFAULT_SCHEDULE_DELAY_MINUTES);
     private String hostname;
     private ScheduledExecutorService executor;
+    private final List<Runnable> collectionListeners = new ArrayList<>();
 
     FailoverMetricReaderBuilder(Config config) {
         this.config = config;
@@ -41,22 +42,29 @@ public class FailoverMetricReaderBuilder {
     }
 
     /**
-     * Sets the {@link ScheduledExecutorService} to schedule reads on.
+     * Sets the {@link ScheduledExecutorService} to schedule reads on. The reader shuts it down on shutdown.
+     * If unset, reads run on the process-wide {@link SharedScheduler}, which is never shut down.
      */
     public FailoverMetricReaderBuilder setExecutor(ScheduledExecutorService executor) {
         this.executor = executor;
         return this;
     }
 
+    /**
+     * Adds a listener invoked on the collecting thread after each collection, before the export starts.
+     */
+    public FailoverMetricReaderBuilder addCollectionListener(Runnable listener) {
+        collectionListeners.add(listener);
+        return this;
+    }
+
     /**
      * Build a {@link FailoverMetricReader} with the configuration of this builder.
      */
     public FailoverMetricReader build() {
-        ScheduledExecutorService executor = this.executor;
-        if (executor == null) {
-            executor =
-                    Executors.newScheduledThreadPool(2, new DaemonThreadFactory("FailoverMetricReader"));
-        }
-        return new FailoverMetricReader(config, hostname, intervalNanos, executor);
+        boolean ownsExecutor = executor != null;
+        ScheduledExecutorService executor = ownsExecutor ? this.executor : SharedScheduler.get();
+        return new FailoverMetricReader(config, hostname, intervalNanos, executor, ownsExecutor,
+                new ArrayList<>(collectionListeners));
     }
 }
@@ -0,0 +1,82 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.sdk.common.CompletableResultCode;
+import io.opentelemetry.sdk.metrics.Aggregation;
+import io.opentelemetry.sdk.metrics.InstrumentType;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration;
+import io.opentelemetry.sdk.metrics.export.MetricReader;
+import io.opentelemetry.sdk.metrics.internal.export.MetricProducer;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+
+/**
+ * 指标分组的 reader,按分组自己的周期采集,采集结果交给所属的 {@link FailoverMetricReader} 导出.
+ */
+final class GroupMetricReader implements MetricReader {
+
+    private final FailoverMetricReader parent;
+    private final String group;
+    private final long intervalNanos;
+    private final List<Runnable> collectionListeners;
+    private final Object lock = new Object();
+
+    private volatile MetricProducer metricProducer = MetricProducer.noop();
+    private ScheduledFuture<?> scheduledFuture;
+    private boolean shutdown;
+
+    GroupMetricReader(FailoverMetricReader parent, String group, long intervalNanos, Runnable collectionListener) {
+        this.parent = parent;
+        this.group = group;
+        this.intervalNanos = intervalNanos;
+        this.collectionListeners = collectionListener == null
+                ? Collections.emptyList() : Collections.singletonList(collectionListener);
+    }
+
+    @Override
+    public void register(CollectionRegistration registration) {
+        this.metricProducer = MetricProducer.asMetricProducer(registration);
+        synchronized (lock) {
+            if (scheduledFuture == null && !shutdown) {
+                scheduledFuture = parent.schedule(this::collect, intervalNanos);
+            }
+        }
+    }
+
+    private void collect() {
+        parent.collectAndExport(group, metricProducer, collectionListeners);
+    }
+
+    @Override
+    public CompletableResultCode forceFlush() {
+        return parent.collectAndExport(group, metricProducer, collectionListeners);
+    }
+
+    @Override
+    public CompletableResultCode shutdown() {
+        synchronized (lock) {
+            shutdown = true;
+            if (scheduledFuture != null) {
+                scheduledFuture.cancel(false);
+            }
+        }
+        return forceFlush();
+    }
+
+    @Override
+    public AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        return parent.getAggregationTemporality(instrumentType);
+    }
+
+    @Override
+    public Aggregation getDefaultAggregation(InstrumentType instrumentType) {
+        return parent.getDefaultAggregation(instrumentType);
+    }
+
+    @Override
+    public String toString() {
+        return "GroupMetricReader{group=" + group + ", intervalNanos=" + intervalNanos + '}';
+    }
+}
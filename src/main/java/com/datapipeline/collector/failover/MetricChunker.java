@@ -0,0 +1,123 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.sdk.metrics.data.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 按估算的 OTLP 编码大小把一次采集拆分为多个批次.
+ *
+ * <p>估算只遍历名称、属性与桶数量,不做真正的序列化;单个指标超过上限时按点拆分到多个批次.
+ */
+final class MetricChunker implements BiConsumer<AttributeKey<?>, Object> {
+
+    private static final int METRIC_OVERHEAD = 16;
+    private static final int POINT_OVERHEAD = 24;
+    private static final int ATTRIBUTE_OVERHEAD = 8;
+    private static final int EXEMPLAR_OVERHEAD = 40;
+
+    private long attributesSize;
+
+    private MetricChunker() {
+    }
+
+    static List<Collection<MetricData>> split(Collection<MetricData> metrics, long maxBytes) {
+        if (maxBytes <= 0 || estimate(metrics) <= maxBytes) {
+            return Collections.singletonList(metrics);
+        }
+        MetricChunker chunker = new MetricChunker();
+        List<Collection<MetricData>> chunks = new ArrayList<>();
+        List<MetricData> chunk = new ArrayList<>();
+        long size = 0;
+        for (MetricData metric : metrics) {
+            long overhead = overhead(metric);
+            long metricSize = overhead;
+            for (PointData point : metric.getData().getPoints()) {
+                metricSize += chunker.estimate(point);
+            }
+            if (size + metricSize <= maxBytes) {
+                chunk.add(metric);
+                size += metricSize;
+                continue;
+            }
+            if (metricSize <= maxBytes) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>();
+                chunk.add(metric);
+                size = metricSize;
+                continue;
+            }
+            // 单个指标超过上限,按点拆分
+            List<PointData> points = new ArrayList<>();
+            long pointsSize = overhead;
+            for (PointData point : metric.getData().getPoints()) {
+                long pointSize = chunker.estimate(point);
+                if (size + pointsSize + pointSize > maxBytes && (!points.isEmpty() || !chunk.isEmpty())) {
+                    if (!points.isEmpty()) {
+                        chunk.add(MetricDataMerger.withPoints(metric, points));
+                        points = new ArrayList<>();
+                    }
+                    chunks.add(chunk);
+                    chunk = new ArrayList<>();
+                    size = 0;
+                    pointsSize = overhead;
+                }
+                points.add(point);
+                pointsSize += pointSize;
+            }
+            if (!points.isEmpty()) {
+                chunk.add(MetricDataMerger.withPoints(metric, points));
+                size += pointsSize;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    static long estimate(Collection<MetricData> metrics) {
+        MetricChunker chunker = new MetricChunker();
+        long size = 0;
+        for (MetricData metric : metrics) {
+            size += overhead(metric);
+            for (PointData point : metric.getData().getPoints()) {
+                size += chunker.estimate(point);
+            }
+        }
+        return size;
+    }
+
+    private static long overhead(MetricData metric) {
+        return METRIC_OVERHEAD + metric.getName().length() + metric.getDescription().length() + metric.getUnit().length();
+    }
+
+    private long estimate(PointData point) {
+        attributesSize = 0;
+        point.getAttributes().forEach(this);
+        long size = POINT_OVERHEAD + attributesSize + (long) EXEMPLAR_OVERHEAD * point.getExemplars().size();
+        if (point instanceof HistogramPointData) {
+            HistogramPointData histogram = (HistogramPointData) point;
+            size += 36 + 9L * histogram.getCounts().size() + 8L * histogram.getBoundaries().size();
+        } else if (point instanceof ExponentialHistogramPointData) {
+            ExponentialHistogramPointData histogram = (ExponentialHistogramPointData) point;
+            size += 48 + 9L * (histogram.getPositiveBuckets().getBucketCounts().size()
+                    + histogram.getNegativeBuckets().getBucketCounts().size());
+        } else if (point instanceof SummaryPointData) {
+            size += 18 + 18L * ((SummaryPointData) point).getValues().size();
+        } else {
+            size += 9;
+        }
+        return size;
+    }
+
+    @Override
+    public void accept(AttributeKey<?> key, Object value) {
+        attributesSize += ATTRIBUTE_OVERHEAD + key.getKey().length() + (value instanceof String ? ((String) value).length() : 8);
+    }
+}
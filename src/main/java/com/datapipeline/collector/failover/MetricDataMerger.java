@@ -0,0 +1,125 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.sdk.metrics.data.*;
+import io.opentelemetry.sdk.metrics.internal.data.*;
+
+import java.util.*;
+
+/**
+ * 按序列合并两次采集的 {@link MetricData}.
+ *
+ * <p>cumulative 与 gauge 类型同一序列只保留最新的点;delta 类型的 sum 按值累加,其余 delta 类型保留全部点.
+ */
+final class MetricDataMerger {
+
+    private MetricDataMerger() {
+    }
+
+    static Collection<MetricData> merge(Collection<MetricData> older, Collection<MetricData> newer) {
+        Map<List<Object>, MetricData> merged = new LinkedHashMap<>();
+        for (MetricData metric : older) {
+            merged.put(key(metric), metric);
+        }
+        for (MetricData metric : newer) {
+            merged.merge(key(metric), metric, MetricDataMerger::merge);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    static MetricData merge(MetricData older, MetricData newer) {
+        if (isDelta(newer) && newer.getType() != MetricDataType.LONG_SUM && newer.getType() != MetricDataType.DOUBLE_SUM) {
+            List<PointData> points = new ArrayList<>(older.getData().getPoints());
+            points.addAll(newer.getData().getPoints());
+            return withPoints(newer, points);
+        }
+        Map<Attributes, PointData> points = new LinkedHashMap<>();
+        for (PointData point : older.getData().getPoints()) {
+            points.put(point.getAttributes(), point);
+        }
+        boolean delta = isDelta(newer);
+        for (PointData point : newer.getData().getPoints()) {
+            if (delta) {
+                points.merge(point.getAttributes(), point, MetricDataMerger::add);
+            } else {
+                points.put(point.getAttributes(), point);
+            }
+        }
+        return withPoints(newer, points.values());
+    }
+
+    /**
+     * 使用给定的点重新构造同一指标.
+     */
+    @SuppressWarnings("unchecked")
+    static MetricData withPoints(MetricData metric, Collection<? extends PointData> points) {
+        switch (metric.getType()) {
+            case LONG_GAUGE:
+                return ImmutableMetricData.createLongGauge(metric.getResource(), metric.getInstrumentationScopeInfo(),
+                        metric.getName(), metric.getDescription(), metric.getUnit(),
+                        ImmutableGaugeData.create((Collection<LongPointData>) points));
+            case DOUBLE_GAUGE:
+                return ImmutableMetricData.createDoubleGauge(metric.getResource(), metric.getInstrumentationScopeInfo(),
+                        metric.getName(), metric.getDescription(), metric.getUnit(),
+                        ImmutableGaugeData.create((Collection<DoublePointData>) points));
+            case LONG_SUM:
+                SumData<LongPointData> longSum = metric.getLongSumData();
+                return ImmutableMetricData.createLongSum(metric.getResource(), metric.getInstrumentationScopeInfo(),
+                        metric.getName(), metric.getDescription(), metric.getUnit(),
+                        ImmutableSumData.create(longSum.isMonotonic(), longSum.getAggregationTemporality(),
+                                (Collection<LongPointData>) points));
+            case DOUBLE_SUM:
+                SumData<DoublePointData> doubleSum = metric.getDoubleSumData();
+                return ImmutableMetricData.createDoubleSum(metric.getResource(), metric.getInstrumentationScopeInfo(),
+                        metric.getName(), metric.getDescription(), metric.getUnit(),
+                        ImmutableSumData.create(doubleSum.isMonotonic(), doubleSum.getAggregationTemporality(),
+                                (Collection<DoublePointData>) points));
+            case HISTOGRAM:
+                return ImmutableMetricData.createDoubleHistogram(metric.getResource(), metric.getInstrumentationScopeInfo(),
+                        metric.getName(), metric.getDescription(), metric.getUnit(),
+                        ImmutableHistogramData.create(metric.getHistogramData().getAggregationTemporality(),
+                                (Collection<HistogramPointData>) points));
+            case EXPONENTIAL_HISTOGRAM:
+                return ImmutableMetricData.createExponentialHistogram(metric.getResource(), metric.getInstrumentationScopeInfo(),
+                        metric.getName(), metric.getDescription(), metric.getUnit(),
+                        ImmutableExponentialHistogramData.create(metric.getExponentialHistogramData().getAggregationTemporality(),
+                                (Collection<ExponentialHistogramPointData>) points));
+            case SUMMARY:
+                return ImmutableMetricData.createDoubleSummary(metric.getResource(), metric.getInstrumentationScopeInfo(),
+                        metric.getName(), metric.getDescription(), metric.getUnit(),
+                        ImmutableSummaryData.create((Collection<SummaryPointData>) points));
+            default:
+                throw new IllegalArgumentException("Unsupported metric type " + metric.getType());
+        }
+    }
+
+    private static boolean isDelta(MetricData metric) {
+        switch (metric.getType()) {
+            case LONG_SUM:
+                return metric.getLongSumData().getAggregationTemporality() == AggregationTemporality.DELTA;
+            case DOUBLE_SUM:
+                return metric.getDoubleSumData().getAggregationTemporality() == AggregationTemporality.DELTA;
+            case HISTOGRAM:
+                return metric.getHistogramData().getAggregationTemporality() == AggregationTemporality.DELTA;
+            case EXPONENTIAL_HISTOGRAM:
+                return metric.getExponentialHistogramData().getAggregationTemporality() == AggregationTemporality.DELTA;
+            default:
+                return false;
+        }
+    }
+
+    private static PointData add(PointData older, PointData newer) {
+        if (newer instanceof LongPointData) {
+            LongPointData point = (LongPointData) newer;
+            return ImmutableLongPointData.create(older.getStartEpochNanos(), point.getEpochNanos(), point.getAttributes(),
+                    ((LongPointData) older).getValue() + point.getValue(), point.getExemplars());
+        }
+        DoublePointData point = (DoublePointData) newer;
+        return ImmutableDoublePointData.create(older.getStartEpochNanos(), point.getEpochNanos(), point.getAttributes(),
+                ((DoublePointData) older).getValue() + point.getValue(), point.getExemplars());
+    }
+
+    private static List<Object> key(MetricData metric) {
+        return Arrays.asList(metric.getResource(), metric.getInstrumentationScopeInfo(), metric.getName(), metric.getType());
+    }
+}
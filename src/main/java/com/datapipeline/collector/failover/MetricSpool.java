@@ -0,0 +1,166 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.sdk.metrics.data.MetricData;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 所有 endpoint 都不可用时的磁盘预写 spool.
+ *
+ * <p>导出失败的批次序列化为 OTLP protobuf 后顺序追加到定长段文件中,总字节数超出预算或段文件超过最大保留时间时从最旧的段开始丢弃.
+ * 重启后按文件名顺序恢复所有段,由 {@link FailoverMetricReader} 在 endpoint 恢复后按序限速回放.
+ */
+final class MetricSpool {
+    private static final Logger logger = Logger.getLogger(MetricSpool.class.getName());
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".spool";
+
+    private final File directory;
+    private final long maxBytes;
+    private final int segmentBytes;
+    private final long maxAgeMillis;
+    private final ArrayDeque<SpoolSegment> segments = new ArrayDeque<>();
+    private long sequence;
+    private long bytes;
+
+    MetricSpool(File directory, long maxBytes, int segmentBytes, long maxAgeMillis) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.segmentBytes = segmentBytes;
+        this.maxAgeMillis = maxAgeMillis;
+        recover();
+    }
+
+    synchronized void append(Collection<MetricData> metricData) {
+        byte[] data;
+        try {
+            data = new OtlpEncoding(metricData).toByteArray();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to serialize metrics for spool", e);
+            return;
+        }
+        expire();
+        SpoolSegment active = segments.peekLast();
+        try {
+            if (active == null || !active.append(data)) {
+                int capacity = Math.max(segmentBytes, SpoolSegment.HEADER_SIZE + SpoolSegment.RECORD_OVERHEAD + data.length);
+                if (capacity > maxBytes) {
+                    logger.log(Level.WARNING, "Metric batch of " + data.length + " bytes exceeds spool budget, dropped");
+                    return;
+                }
+                while (bytes + capacity > maxBytes && !segments.isEmpty()) {
+                    logger.log(Level.WARNING, "Spool budget exceeded, dropping oldest segment " + segments.peekFirst().getFile());
+                    remove(segments.peekFirst());
+                }
+                active = SpoolSegment.create(new File(directory, name(++sequence)), capacity);
+                segments.addLast(active);
+                bytes += capacity;
+                active.append(data);
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to write spool segment", e);
+        }
+    }
+
+    /**
+     * 返回最旧的一条未回放记录,回放成功后调用 {@link #commit()} 推进读位置.
+     */
+    synchronized byte[] peek() {
+        expire();
+        SpoolSegment first = segments.peekFirst();
+        while (first != null && first.isEmpty() && first != segments.peekLast()) {
+            remove(first);
+            first = segments.peekFirst();
+        }
+        return first == null ? null : first.peek();
+    }
+
+    synchronized void commit() {
+        SpoolSegment first = segments.peekFirst();
+        if (first != null) {
+            first.commit();
+            if (first.isEmpty() && first != segments.peekLast()) {
+                remove(first);
+            }
+        }
+    }
+
+    synchronized long getBytes() {
+        return bytes;
+    }
+
+    synchronized long getPendingBytes() {
+        long pending = 0;
+        for (SpoolSegment segment : segments) {
+            pending += segment.getPendingBytes();
+        }
+        return pending;
+    }
+
+    synchronized void close() {
+        for (SpoolSegment segment : segments) {
+            segment.force();
+        }
+    }
+
+    private void recover() {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            logger.log(Level.WARNING, "Failed to create spool directory " + directory);
+            return;
+        }
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        Arrays.sort(files);
+        for (File file : files) {
+            String name = file.getName();
+            try {
+                sequence = Math.max(sequence, Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length())));
+                SpoolSegment segment = SpoolSegment.open(file);
+                segments.addLast(segment);
+                bytes += segment.getCapacity();
+            } catch (IOException | NumberFormatException e) {
+                logger.log(Level.WARNING, "Discard corrupted spool segment " + file, e);
+                file.delete();
+            }
+        }
+        expire();
+        if (!segments.isEmpty()) {
+            logger.log(Level.INFO, "Recovered " + segments.size() + " spool segments from " + directory);
+        }
+    }
+
+    private void expire() {
+        long deadline = System.currentTimeMillis() - maxAgeMillis;
+        Iterator<SpoolSegment> iterator = segments.iterator();
+        while (iterator.hasNext()) {
+            SpoolSegment segment = iterator.next();
+            if (segment.getCreatedAt() >= deadline) {
+                break;
+            }
+            logger.log(Level.WARNING, "Spool segment expired " + segment.getFile());
+            iterator.remove();
+            bytes -= segment.getCapacity();
+            segment.delete();
+        }
+    }
+
+    private void remove(SpoolSegment segment) {
+        segments.remove(segment);
+        bytes -= segment.getCapacity();
+        segment.delete();
+    }
+
+    private static String name(long sequence) {
+        return String.format("%s%020d%s", PREFIX, sequence, SUFFIX);
+    }
+}
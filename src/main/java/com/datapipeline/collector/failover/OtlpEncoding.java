@@ -0,0 +1,37 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.exporter.internal.otlp.metrics.MetricsRequestMarshaler;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+
+/**
+ * 一批指标的 OTLP ExportMetricsServiceRequest protobuf 编码.
+ *
+ * <p>依赖 opentelemetry-exporter-otlp-common 的内部类 {@link MetricsRequestMarshaler},该类不属于公开 API,
+ * 可能在 SDK 小版本间变化,升级 OpenTelemetry 时只需要调整这里.
+ */
+final class OtlpEncoding {
+    private final MetricsRequestMarshaler marshaler;
+
+    OtlpEncoding(Collection<MetricData> metricData) {
+        this.marshaler = MetricsRequestMarshaler.create(metricData);
+    }
+
+    int size() {
+        return marshaler.getBinarySerializedSize();
+    }
+
+    void writeTo(OutputStream output) throws IOException {
+        marshaler.writeBinaryTo(output);
+    }
+
+    byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(size());
+        writeTo(output);
+        return output.toByteArray();
+    }
+}
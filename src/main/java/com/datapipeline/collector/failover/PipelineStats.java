@@ -0,0 +1,199 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.sdk.metrics.data.MetricData;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 采集与导出流水线自身的运行状态.
+ *
+ * <p>计数类数据由 {@link FailoverMetricReader} 累加,通过异步指标读取;耗时分布需要直方图,
+ * 由注册自身指标时通过 {@link #bind(DoubleHistogram, DoubleHistogram)} 注入.
+ * 各指标分组按自己的周期采集,采集次数、规模与耗时按分组分别记录,默认分组为 {@value #DEFAULT_GROUP}.
+ */
+public final class PipelineStats {
+
+    public static final String DEFAULT_GROUP = "default";
+
+    private static final AttributeKey<String> ENDPOINT_KEY = AttributeKey.stringKey("endpoint");
+    private static final AttributeKey<String> OUTCOME_KEY = AttributeKey.stringKey("outcome");
+    private static final AttributeKey<String> GROUP_KEY = AttributeKey.stringKey("group");
+
+    private final LongAdder collections = new LongAdder();
+    private final LongAdder collectedPoints = new LongAdder();
+    private final LongAdder exports = new LongAdder();
+    private final LongAdder exportNanos = new LongAdder();
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder failedChunks = new LongAdder();
+    private final LongAdder failovers = new LongAdder();
+    private final LongAdder recoveries = new LongAdder();
+    private final Map<String, Attributes[]> endpointAttributes = new ConcurrentHashMap<>();
+    private final Map<String, Group> groups = new ConcurrentHashMap<>();
+    private volatile String activeEndpoint;
+    private volatile DoubleHistogram collectDuration;
+    private volatile DoubleHistogram exportDuration;
+
+    PipelineStats(String activeEndpoint) {
+        this.activeEndpoint = activeEndpoint;
+    }
+
+    /**
+     * 注入记录采集耗时与导出耗时的直方图,单位毫秒
+     */
+    public void bind(DoubleHistogram collectDuration, DoubleHistogram exportDuration) {
+        this.collectDuration = collectDuration;
+        this.exportDuration = exportDuration;
+    }
+
+    void onCollect(String group, long nanos, Collection<MetricData> metricData) {
+        int points = 0;
+        for (MetricData metric : metricData) {
+            points += metric.getData().getPoints().size();
+        }
+        collections.increment();
+        collectedPoints.add(points);
+        Group stats = groups.computeIfAbsent(group, Group::new);
+        stats.collections.increment();
+        stats.lastMetrics = metricData.size();
+        stats.lastPoints = points;
+        DoubleHistogram histogram = collectDuration;
+        if (histogram != null) {
+            histogram.record(toMillis(nanos), stats.attributes);
+        }
+    }
+
+    void onExport(String endpoint, long nanos, boolean success) {
+        exports.increment();
+        exportNanos.add(nanos);
+        DoubleHistogram histogram = exportDuration;
+        if (histogram != null) {
+            Attributes[] attributes = endpointAttributes.computeIfAbsent(endpoint, key -> new Attributes[]{
+                    Attributes.of(ENDPOINT_KEY, key, OUTCOME_KEY, "success"),
+                    Attributes.of(ENDPOINT_KEY, key, OUTCOME_KEY, "error")});
+            histogram.record(toMillis(nanos), success ? attributes[0] : attributes[1]);
+        }
+    }
+
+    void onQueued() {
+        queued.increment();
+    }
+
+    void onFailedChunk() {
+        failedChunks.increment();
+    }
+
+    void onSwitch(String endpoint, boolean recovery) {
+        activeEndpoint = endpoint;
+        if (recovery) {
+            recoveries.increment();
+        } else {
+            failovers.increment();
+        }
+    }
+
+    /**
+     * 所有分组累计的采集次数
+     */
+    public long getCollections() {
+        return collections.sum();
+    }
+
+    /**
+     * 所有周期累计采集到的点数
+     */
+    public long getCollectedPoints() {
+        return collectedPoints.sum();
+    }
+
+    /**
+     * 导出请求数,包括重试
+     */
+    public long getExports() {
+        return exports.sum();
+    }
+
+    public long getExportNanos() {
+        return exportNanos.sum();
+    }
+
+    /**
+     * 各分组的采集统计,key 为分组名
+     */
+    public Map<String, Group> getGroups() {
+        return Collections.unmodifiableMap(groups);
+    }
+
+    /**
+     * 上一次导出尚未完成而进入 backlog 的采集次数
+     */
+    public long getQueued() {
+        return queued.sum();
+    }
+
+    /**
+     * 重试耗尽后仍导出失败的分片数,开启 spool 时这些分片会写入磁盘
+     */
+    public long getFailedChunks() {
+        return failedChunks.sum();
+    }
+
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    public long getRecoveries() {
+        return recoveries.sum();
+    }
+
+    public String getActiveEndpoint() {
+        return activeEndpoint;
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    public static final class Group {
+        private final Attributes attributes;
+        private final LongAdder collections = new LongAdder();
+        private volatile int lastMetrics;
+        private volatile int lastPoints;
+
+        private Group(String name) {
+            this.attributes = Attributes.of(GROUP_KEY, name);
+        }
+
+        /**
+         * 带 group 属性的 Attributes,用于按分组记录指标
+         */
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        public long getCollections() {
+            return collections.sum();
+        }
+
+        /**
+         * 该分组最近一次采集到的指标数
+         */
+        public int getLastMetrics() {
+            return lastMetrics;
+        }
+
+        /**
+         * 该分组最近一次采集到的点数
+         */
+        public int getLastPoints() {
+            return lastPoints;
+        }
+    }
+}
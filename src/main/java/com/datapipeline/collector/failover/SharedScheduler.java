@@ -0,0 +1,77 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.sdk.internal.DaemonThreadFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内共享的调度线程池,供各 reader 以及需要定时任务的 observer 使用.
+ *
+ * <p>线程均为守护线程,随进程退出;使用方只取消自己提交的任务,不能关闭线程池.
+ */
+public final class SharedScheduler {
+
+    private static final int THREADS = 2;
+
+    private static volatile ScheduledExecutorService executor;
+
+    private SharedScheduler() {
+    }
+
+    public static ScheduledExecutorService get() {
+        ScheduledExecutorService result = executor;
+        if (result == null) {
+            synchronized (SharedScheduler.class) {
+                result = executor;
+                if (result == null) {
+                    result = Executors.newScheduledThreadPool(THREADS, new DaemonThreadFactory("collector-sdk-scheduler"));
+                    executor = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 周期任务首次执行前的延迟.
+     *
+     * <p>不对齐时为一个周期加上偏移与抖动;对齐时在 wall-clock 的周期边界加上偏移与抖动处执行,
+     * 同一部署的所有实例按相同的边界采集,便于跨节点聚合.偏移与抖动之和超过周期时按周期取模.
+     *
+     * @param offsetNanos 固定偏移,通常由 {@link #spreadOffsetNanos(String, long)} 计算
+     * @param jitterNanos 随机抖动上限,在 [0, jitterNanos) 之间取值
+     */
+    static long initialDelayNanos(long intervalNanos, long nowMillis, boolean align, long offsetNanos, long jitterNanos) {
+        long phase = offsetNanos;
+        if (jitterNanos > 0) {
+            phase += ThreadLocalRandom.current().nextLong(jitterNanos);
+        }
+        if (!align || intervalNanos <= 0) {
+            return intervalNanos + phase;
+        }
+        long sinceBoundary = Math.floorMod(TimeUnit.MILLISECONDS.toNanos(nowMillis), intervalNanos);
+        long delay = Math.floorMod(phase - sinceBoundary, intervalNanos);
+        // 距离目标时刻太近时推迟到下一个周期,避免启动后立即采集
+        return delay < intervalNanos / 10 ? delay + intervalNanos : delay;
+    }
+
+    /**
+     * 按实例名哈希得到周期内的固定偏移,同一实例每次启动偏移相同,不同实例在周期内均匀分散
+     */
+    static long spreadOffsetNanos(String instance, long intervalNanos) {
+        if (instance == null || intervalNanos <= 0) {
+            return 0;
+        }
+        // murmur3 的 fmix64,避免相近的实例名得到相近的偏移
+        long h = instance.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return Math.floorMod(h, intervalNanos);
+    }
+}
@@ -0,0 +1,223 @@
+package com.datapipeline.collector.failover;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * 内存映射的定长 spool 段文件.
+ *
+ * <p>文件头记录创建时间、已提交的写位置与已回放的读位置,并附带 CRC 校验;记录格式为 [长度][CRC][数据].
+ * 重新打开时会从读位置开始逐条校验记录,截断到最后一条完整记录,因此进程在任意时刻崩溃都不会回放残缺数据.
+ */
+final class SpoolSegment {
+    private static final Logger logger = Logger.getLogger(SpoolSegment.class.getName());
+
+    static final int HEADER_SIZE = 64;
+    static final int RECORD_OVERHEAD = 8;
+
+    private static final int MAGIC = 0x44505350;
+    private static final int VERSION = 1;
+    private static final int CREATED_AT = 8;
+    private static final int WRITE_OFFSET = 16;
+    private static final int READ_OFFSET = 24;
+    private static final int HEADER_CRC = 32;
+
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private final int capacity;
+    private final long createdAt;
+    private int writeOffset;
+    private int readOffset;
+
+    private SpoolSegment(File file, MappedByteBuffer buffer, long createdAt, int writeOffset, int readOffset) {
+        this.file = file;
+        this.buffer = buffer;
+        this.capacity = buffer.capacity();
+        this.createdAt = createdAt;
+        this.writeOffset = writeOffset;
+        this.readOffset = readOffset;
+    }
+
+    static SpoolSegment create(File file, int capacity) throws IOException {
+        MappedByteBuffer buffer = map(file, capacity);
+        SpoolSegment segment = new SpoolSegment(file, buffer, System.currentTimeMillis(), HEADER_SIZE, HEADER_SIZE);
+        segment.writeHeader();
+        return segment;
+    }
+
+    static SpoolSegment open(File file) throws IOException {
+        long length = file.length();
+        if (length <= HEADER_SIZE || length > Integer.MAX_VALUE) {
+            throw new IOException("invalid spool segment " + file);
+        }
+        MappedByteBuffer buffer = map(file, (int) length);
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            unmap(buffer);
+            throw new IOException("invalid spool segment " + file);
+        }
+        long createdAt = buffer.getLong(CREATED_AT);
+        long writeOffset = buffer.getLong(WRITE_OFFSET);
+        long readOffset = buffer.getLong(READ_OFFSET);
+        if (buffer.getInt(HEADER_CRC) != headerCrc(buffer)
+                || readOffset < HEADER_SIZE || readOffset > writeOffset || writeOffset > length) {
+            // 文件头写到一半时崩溃,读位置不可信,从头回放(至少一次)
+            readOffset = HEADER_SIZE;
+            createdAt = file.lastModified();
+        }
+        SpoolSegment segment = new SpoolSegment(file, buffer, createdAt, (int) readOffset, (int) readOffset);
+        // 已提交位置之后也可能存在完整记录(写完数据、未来得及更新文件头),逐条校验直到第一条无效记录
+        while (segment.valid(segment.writeOffset)) {
+            segment.writeOffset += RECORD_OVERHEAD + buffer.getInt(segment.writeOffset);
+        }
+        segment.writeHeader();
+        return segment;
+    }
+
+    boolean append(byte[] data) {
+        int position = writeOffset;
+        if (position + RECORD_OVERHEAD + data.length > capacity) {
+            return false;
+        }
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position + RECORD_OVERHEAD);
+        slice.put(data);
+        buffer.putInt(position, data.length);
+        buffer.putInt(position + 4, crc(data, 0, data.length));
+        buffer.force();
+        writeOffset = position + RECORD_OVERHEAD + data.length;
+        writeHeader();
+        return true;
+    }
+
+    byte[] peek() {
+        if (readOffset >= writeOffset) {
+            return null;
+        }
+        byte[] data = new byte[buffer.getInt(readOffset)];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(readOffset + RECORD_OVERHEAD);
+        slice.get(data);
+        return data;
+    }
+
+    void commit() {
+        if (readOffset < writeOffset) {
+            readOffset += RECORD_OVERHEAD + buffer.getInt(readOffset);
+            writeHeader();
+        }
+    }
+
+    boolean isEmpty() {
+        return readOffset >= writeOffset;
+    }
+
+    long getCreatedAt() {
+        return createdAt;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    long getPendingBytes() {
+        return writeOffset - readOffset;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * 先解除映射再删除文件,调用后不能再访问该段.
+     */
+    boolean delete() {
+        unmap(buffer);
+        return file.delete();
+    }
+
+    private boolean valid(int position) {
+        if (position + RECORD_OVERHEAD > capacity) {
+            return false;
+        }
+        int length = buffer.getInt(position);
+        if (length <= 0 || length > capacity - position - RECORD_OVERHEAD) {
+            return false;
+        }
+        byte[] data = new byte[length];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(position + RECORD_OVERHEAD);
+        slice.get(data);
+        return buffer.getInt(position + 4) == crc(data, 0, length);
+    }
+
+    private void writeHeader() {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putLong(CREATED_AT, createdAt);
+        buffer.putLong(WRITE_OFFSET, writeOffset);
+        buffer.putLong(READ_OFFSET, readOffset);
+        buffer.putInt(HEADER_CRC, headerCrc(buffer));
+        buffer.force();
+    }
+
+    private static int headerCrc(ByteBuffer buffer) {
+        byte[] header = new byte[HEADER_CRC];
+        ByteBuffer slice = buffer.duplicate();
+        slice.position(0);
+        slice.get(header);
+        return crc(header, 0, header.length);
+    }
+
+    private static int crc(byte[] data, int offset, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * 映射只有在 buffer 被 GC 时才会释放,删除后文件仍占用磁盘和地址空间,这里主动调用 cleaner 释放.
+     * JDK 9 以上通过 Unsafe.invokeCleaner,JDK 8 通过 DirectBuffer.cleaner().clean().
+     */
+    private static void unmap(MappedByteBuffer buffer) {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner;
+            try {
+                invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            } catch (NoSuchMethodException e) {
+                Method cleanerMethod = buffer.getClass().getMethod("cleaner");
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    cleaner.getClass().getMethod("clean").invoke(cleaner);
+                }
+                return;
+            }
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to unmap spool segment, left to GC", e);
+        }
+    }
+
+    private static MappedByteBuffer map(File file, int capacity) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw");
+             FileChannel channel = raf.getChannel()) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.datapipeline.collector.failover;
+
+import io.opentelemetry.sdk.metrics.data.MetricData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 各 endpoint 成功导出的字节数与压缩比.
+ *
+ * <p>exporter 不暴露实际发送的字节数,这里每个 endpoint 的第一次导出及之后每 sampleInterval 次导出做一次真实的
+ * protobuf 编码与 gzip 压缩来校准,其余导出按估算大小乘以最近一次的校准系数累计.
+ */
+public final class TransportStats {
+    private static final Logger logger = Logger.getLogger(TransportStats.class.getName());
+
+    private final boolean gzip;
+    private final int sampleInterval;
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private volatile double encodedPerEstimate = 1.0;
+
+    TransportStats(boolean gzip, int sampleInterval) {
+        this.gzip = gzip;
+        this.sampleInterval = Math.max(1, sampleInterval);
+    }
+
+    void record(String endpoint, Collection<MetricData> metricData) {
+        Endpoint stats = endpoints.computeIfAbsent(endpoint, key -> new Endpoint());
+        long estimate = MetricChunker.estimate(metricData);
+        if (stats.exports.getAndIncrement() % sampleInterval == 0) {
+            sample(stats, metricData, estimate);
+        }
+        long encoded = (long) (estimate * encodedPerEstimate);
+        stats.encodedBytes.add(encoded);
+        stats.sentBytes.add(gzip ? (long) (encoded / stats.compressionRatio) : encoded);
+    }
+
+    private void sample(Endpoint stats, Collection<MetricData> metricData, long estimate) {
+        try {
+            OtlpEncoding encoding = new OtlpEncoding(metricData);
+            long encoded = encoding.size();
+            if (estimate > 0 && encoded > 0) {
+                encodedPerEstimate = (double) encoded / estimate;
+            }
+            if (gzip) {
+                CountingOutputStream counter = new CountingOutputStream();
+                try (GZIPOutputStream output = new GZIPOutputStream(counter)) {
+                    encoding.writeTo(output);
+                }
+                if (counter.count > 0) {
+                    stats.compressionRatio = (double) encoded / counter.count;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to sample export size", e);
+        }
+    }
+
+    public Map<String, Endpoint> getEndpoints() {
+        return Collections.unmodifiableMap(endpoints);
+    }
+
+    public static final class Endpoint {
+        private final AtomicLong exports = new AtomicLong();
+        private final LongAdder encodedBytes = new LongAdder();
+        private final LongAdder sentBytes = new LongAdder();
+        private volatile double compressionRatio = 1.0;
+
+        /**
+         * 压缩前的 protobuf 编码字节数
+         */
+        public long getEncodedBytes() {
+            return encodedBytes.sum();
+        }
+
+        /**
+         * 实际发送的字节数,未开启压缩时与编码字节数相同
+         */
+        public long getSentBytes() {
+            return sentBytes.sum();
+        }
+
+        /**
+         * 编码字节数与压缩后字节数之比
+         */
+        public double getCompressionRatio() {
+            return compressionRatio;
+        }
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
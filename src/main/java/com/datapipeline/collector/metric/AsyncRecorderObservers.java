@@ -0,0 +1,45 @@
+package com.datapipeline.collector.metric;
+
+import com.datapipeline.collector.recording.AsyncRecorder;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+/**
+ * 异步记录队列自身的指标:队列深度、容量、已处理及因队列满被丢弃的记录数
+ */
+public class AsyncRecorderObservers implements MBeanObservers {
+
+    private final AsyncRecorder recorder;
+
+    public AsyncRecorderObservers(AsyncRecorder recorder) {
+        this.recorder = recorder;
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        Meter meter = sdk.meterBuilder(SDK_INSTRUMENTATION_NAME).build();
+        meter
+                .upDownCounterBuilder("collector.sdk.async.queue.depth")
+                .setDescription("Number of recordings waiting in the async queue")
+                .setUnit("{recordings}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(recorder.getQueueDepth()));
+
+        meter
+                .upDownCounterBuilder("collector.sdk.async.queue.capacity")
+                .setDescription("Capacity of the async queue")
+                .setUnit("{recordings}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(recorder.getCapacity()));
+
+        meter
+                .counterBuilder("collector.sdk.async.processed")
+                .setDescription("Number of recordings applied to the SDK by the async drainer")
+                .setUnit("{recordings}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(recorder.getProcessed()));
+
+        meter
+                .counterBuilder("collector.sdk.async.dropped")
+                .setDescription("Number of recordings dropped because the async queue was full")
+                .setUnit("{recordings}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(recorder.getDropped()));
+    }
+}
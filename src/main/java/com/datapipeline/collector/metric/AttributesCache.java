@@ -0,0 +1,133 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.common.AttributesBuilder;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * "key=value" 形式的属性数组到 {@link Attributes} 的有界并发缓存.
+ *
+ * <p>相同内容的属性数组命中同一个不可变 {@link Attributes} 实例,命中时只需一次哈希计算与数组比较,不产生任何分配.
+ * 缓存为两路组相联结构,容量固定,槽位冲突时直接替换旧条目,因此内存占用不随调用方传入的属性组合增长.
+ */
+public final class AttributesCache {
+
+    private final AtomicReferenceArray<Entry> table;
+    private final int mask;
+    private final int maxKeys;
+    private final Map<String, AttributeKey<String>> keys = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public AttributesCache(int capacity) {
+        int size = 2;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.table = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.maxKeys = size;
+    }
+
+    public Attributes get(String[] attributes) {
+        if (attributes == null || attributes.length == 0) {
+            return Attributes.empty();
+        }
+        int hash = hash(attributes);
+        int index = hash & mask & ~1;
+        Entry first = table.get(index);
+        if (first != null && first.matches(hash, attributes)) {
+            hits.increment();
+            return first.attributes;
+        }
+        Entry second = table.get(index + 1);
+        if (second != null && second.matches(hash, attributes)) {
+            hits.increment();
+            return second.attributes;
+        }
+        misses.increment();
+        Entry entry = new Entry(hash, attributes.clone(), build(attributes));
+        if (first == null) {
+            table.set(index, entry);
+        } else if (second == null) {
+            table.set(index + 1, entry);
+        } else {
+            // 两个槽位都已占用时按哈希高位选择替换对象,避免总是淘汰同一个槽位
+            table.set(index + ((hash >>> 16) & 1), entry);
+            evictions.increment();
+        }
+        return entry.attributes;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int getCapacity() {
+        return table.length();
+    }
+
+    private Attributes build(String[] attributes) {
+        AttributesBuilder builder = Attributes.builder();
+        for (String attr : attributes) {
+            int index = attr.indexOf('=');
+            if (index <= 0) {
+                continue;
+            }
+            builder.put(key(attr.substring(0, index)), attr.substring(index + 1));
+        }
+        return builder.build();
+    }
+
+    private AttributeKey<String> key(String name) {
+        AttributeKey<String> key = keys.get(name);
+        if (key != null) {
+            return key;
+        }
+        key = AttributeKey.stringKey(name);
+        if (keys.size() < maxKeys) {
+            AttributeKey<String> existing = keys.putIfAbsent(name, key);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return key;
+    }
+
+    private static int hash(String[] attributes) {
+        int h = Arrays.hashCode(attributes);
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        private final int hash;
+        private final String[] key;
+        private final Attributes attributes;
+
+        private Entry(int hash, String[] key, Attributes attributes) {
+            this.hash = hash;
+            this.key = key;
+            this.attributes = attributes;
+        }
+
+        private boolean matches(int hash, String[] attributes) {
+            return this.hash == hash && Arrays.equals(key, attributes);
+        }
+    }
+}
@@ -95,7 +95,7 @@ public class CPU implements MBeanObservers {
     }
 
     @SuppressWarnings("ReturnValueIgnored")
-    private static Supplier<Double> methodInvoker(
+    static Supplier<Double> methodInvoker(
             OperatingSystemMXBean osBean, String osBeanClassName, String methodName) {
         try {
             Class<?> osBeanClass = Class.forName(osBeanClassName);
@@ -103,7 +103,7 @@ public class CPU implements MBeanObservers {
             Method method = osBeanClass.getDeclaredMethod(methodName);
             return () -> {
                 try {
-                    return (double) method.invoke(osBean);
+                    return ((Number) method.invoke(osBean)).doubleValue();
                 } catch (IllegalAccessException | InvocationTargetException e) {
                     return null;
                 }
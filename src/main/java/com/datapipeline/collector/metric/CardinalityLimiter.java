@@ -0,0 +1,72 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 单个指标的属性组合数量上限.超过上限的新属性组合统一记录到 otel.metric.overflow=true 序列,
+ * 并计数、记录前若干个超限的属性组合,避免调用方传入的属性值(如表名、记录id)无限制地产生新序列.
+ */
+public final class CardinalityLimiter {
+    private static final Logger logger = Logger.getLogger(CardinalityLimiter.class.getName());
+
+    public static final Attributes OVERFLOW = Attributes.of(AttributeKey.booleanKey("otel.metric.overflow"), true);
+    private static final int MAX_LOGGED = 10;
+
+    private final String name;
+    private final int limit;
+    private final Set<Attributes> seen = ConcurrentHashMap.newKeySet();
+    private final LongAdder overflowed = new LongAdder();
+    private final AtomicInteger logged = new AtomicInteger();
+
+    public CardinalityLimiter(String name, int limit) {
+        this.name = name;
+        this.limit = limit;
+    }
+
+    /**
+     * 返回实际应记录的属性:已出现过或未超限时为原属性,否则为 {@link #OVERFLOW}
+     */
+    public Attributes apply(Attributes attributes) {
+        if (seen.contains(attributes)) {
+            return attributes;
+        }
+        // 并发下可能略微超过上限,但不会无限增长
+        if (seen.size() >= limit) {
+            overflowed.increment();
+            if (logged.get() < MAX_LOGGED && logged.incrementAndGet() <= MAX_LOGGED) {
+                logger.log(Level.WARNING, "metric " + name + " exceeded cardinality limit " + limit
+                        + ", recording into overflow series: " + attributes);
+            }
+            return OVERFLOW;
+        }
+        seen.add(attributes);
+        return attributes;
+    }
+
+    /**
+     * 清空已出现的属性组合.delta 时间性下 SDK 每个周期都会释放没有记录的序列,周期结束时重置后上限即作用于活跃序列
+     */
+    public void reset() {
+        seen.clear();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCardinality() {
+        return seen.size();
+    }
+
+    public long getOverflowed() {
+        return overflowed.sum();
+    }
+}
@@ -0,0 +1,40 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+import java.util.Collection;
+
+/**
+ * 各指标因超出属性组合上限而记录到溢出序列的次数
+ */
+public class CardinalityObservers implements MBeanObservers {
+
+    private static final AttributeKey<String> METRIC_KEY = AttributeKey.stringKey("metric");
+
+    private final Collection<CardinalityLimiter> limiters;
+
+    public CardinalityObservers(Collection<CardinalityLimiter> limiters) {
+        this.limiters = limiters;
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        Meter meter = sdk.meterBuilder(SDK_INSTRUMENTATION_NAME).build();
+        meter
+                .counterBuilder("collector.sdk.cardinality.overflow")
+                .setDescription("Number of recordings routed to the overflow series because the metric exceeded its cardinality limit")
+                .setUnit("{recordings}")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            for (CardinalityLimiter limiter : limiters) {
+                                long overflowed = limiter.getOverflowed();
+                                if (overflowed > 0) {
+                                    observableMeasurement.record(overflowed, Attributes.of(METRIC_KEY, limiter.getName()));
+                                }
+                            }
+                        });
+    }
+}
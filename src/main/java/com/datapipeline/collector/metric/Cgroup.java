@@ -0,0 +1,351 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 容器 cgroup 资源指标:CPU 配额与限流、内存上限/使用量/工作集、OOM 次数,以及可用时的 PSI 压力.
+ *
+ * <p>注册时根据 /sys/fs/cgroup/cgroup.controllers 判断 cgroup v2 或 v1,按 /proc/self/cgroup 定位当前进程所在的目录,
+ * 需要的文件打开后保持,每次采集通过 {@link ProcBuffer} 重新读取.v1 下 PSI 从混合挂载的 unified 层级读取.
+ * 不在 Linux 或没有 cgroup 时不注册任何指标.
+ */
+public class Cgroup implements MBeanObservers, AutoCloseable {
+    private static final Logger logger = Logger.getLogger(Cgroup.class.getName());
+
+    /**
+     * v1 未设置内存上限时为接近 Long.MAX_VALUE 的页对齐值
+     */
+    private static final long UNLIMITED = Long.MAX_VALUE / 2;
+
+    private static final AttributeKey<String> TYPE = AttributeKey.stringKey("type");
+    private static final AttributeKey<String> STALL = AttributeKey.stringKey("stall");
+    private static final Attributes OOM = Attributes.of(TYPE, "oom");
+    private static final Attributes OOM_KILL = Attributes.of(TYPE, "oom_kill");
+    private static final Attributes SOME = Attributes.of(STALL, "some");
+    private static final Attributes FULL = Attributes.of(STALL, "full");
+
+    private static final byte[] NR_PERIODS = ProcBuffer.label("nr_periods ");
+    private static final byte[] NR_THROTTLED = ProcBuffer.label("nr_throttled ");
+    private static final byte[] THROTTLED_USEC = ProcBuffer.label("throttled_usec ");
+    private static final byte[] THROTTLED_TIME = ProcBuffer.label("throttled_time ");
+    private static final byte[] INACTIVE_FILE = ProcBuffer.label("inactive_file ");
+    private static final byte[] TOTAL_INACTIVE_FILE = ProcBuffer.label("total_inactive_file ");
+    private static final byte[] OOM_EVENTS = ProcBuffer.label("oom ");
+    private static final byte[] OOM_KILL_EVENTS = ProcBuffer.label("oom_kill ");
+    private static final byte[] PRESSURE_SOME = ProcBuffer.label("some ");
+    private static final byte[] PRESSURE_FULL = ProcBuffer.label("full ");
+    private static final byte[] PRESSURE_TOTAL = ProcBuffer.label("total=");
+
+    private final String procDir;
+    private final String cgroupRoot;
+    private final ProcBuffer buffer = new ProcBuffer();
+    private boolean v2;
+    private RandomAccessFile cpuMax;
+    private RandomAccessFile cpuQuota;
+    private RandomAccessFile cpuPeriod;
+    private RandomAccessFile cpuStat;
+    private RandomAccessFile memoryLimit;
+    private RandomAccessFile memoryUsage;
+    private RandomAccessFile memoryStat;
+    private RandomAccessFile memoryEvents;
+    private RandomAccessFile cpuPressure;
+    private RandomAccessFile memoryPressure;
+
+    public Cgroup() {
+        this("/proc/self", "/sys/fs/cgroup");
+    }
+
+    Cgroup(String procDir, String cgroupRoot) {
+        this.procDir = procDir;
+        this.cgroupRoot = cgroupRoot;
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        if (!open()) {
+            return;
+        }
+        Meter meter = sdk.meterBuilder(INSTRUMENTATION_NAME).build();
+        ObservableLongMeasurement quota = meter.upDownCounterBuilder("container.cpu.quota")
+                .setDescription("CPU time the container may use in each period, absent when unlimited")
+                .setUnit("us")
+                .buildObserver();
+        ObservableLongMeasurement period = meter.upDownCounterBuilder("container.cpu.period")
+                .setDescription("Length of the CPU quota enforcement period")
+                .setUnit("us")
+                .buildObserver();
+        ObservableLongMeasurement periods = meter.counterBuilder("container.cpu.periods")
+                .setDescription("Number of enforcement periods that elapsed")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableLongMeasurement throttledPeriods = meter.counterBuilder("container.cpu.throttled_periods")
+                .setDescription("Number of periods in which the container was throttled")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableDoubleMeasurement throttledTime = meter.counterBuilder("container.cpu.throttled_time")
+                .setDescription("Total time the container was throttled")
+                .setUnit("s")
+                .ofDoubles()
+                .buildObserver();
+        ObservableLongMeasurement memoryLimitBytes = meter.upDownCounterBuilder("container.memory.limit")
+                .setDescription("Memory limit of the container, absent when unlimited")
+                .setUnit("By")
+                .buildObserver();
+        ObservableLongMeasurement memoryUsageBytes = meter.upDownCounterBuilder("container.memory.usage")
+                .setDescription("Memory charged to the container, including page cache")
+                .setUnit("By")
+                .buildObserver();
+        ObservableLongMeasurement workingSet = meter.upDownCounterBuilder("container.memory.working_set")
+                .setDescription("Memory usage minus inactive page cache")
+                .setUnit("By")
+                .buildObserver();
+        ObservableLongMeasurement oomEvents = meter.counterBuilder("container.memory.oom_events")
+                .setDescription("Number of times the memory limit was hit (oom) or a process was killed (oom_kill)")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableDoubleMeasurement cpuStall = meter.counterBuilder("container.cpu.pressure")
+                .setDescription("Total time tasks stalled waiting for CPU, by stall type")
+                .setUnit("s")
+                .ofDoubles()
+                .buildObserver();
+        ObservableDoubleMeasurement memoryStall = meter.counterBuilder("container.memory.pressure")
+                .setDescription("Total time tasks stalled waiting for memory, by stall type")
+                .setUnit("s")
+                .ofDoubles()
+                .buildObserver();
+        meter.batchCallback(() -> {
+            synchronized (this) {
+                try {
+                    recordCpu(quota, period, periods, throttledPeriods, throttledTime);
+                    recordMemory(memoryLimitBytes, memoryUsageBytes, workingSet, oomEvents);
+                    recordPressure(cpuPressure, cpuStall);
+                    recordPressure(memoryPressure, memoryStall);
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Failed to read cgroup", e);
+                }
+            }
+        }, quota, period, periods, throttledPeriods, throttledTime, memoryLimitBytes, memoryUsageBytes, workingSet,
+                oomEvents, cpuStall, memoryStall);
+    }
+
+    private boolean open() {
+        Map<String, String> paths = cgroupPaths();
+        if (paths.isEmpty()) {
+            return false;
+        }
+        if (new File(cgroupRoot, "cgroup.controllers").exists()) {
+            v2 = true;
+            String dir = resolve(cgroupRoot, paths.get(""));
+            cpuMax = ProcBuffer.open(dir + "/cpu.max");
+            cpuStat = ProcBuffer.open(dir + "/cpu.stat");
+            memoryLimit = ProcBuffer.open(dir + "/memory.max");
+            memoryUsage = ProcBuffer.open(dir + "/memory.current");
+            memoryStat = ProcBuffer.open(dir + "/memory.stat");
+            memoryEvents = ProcBuffer.open(dir + "/memory.events");
+            cpuPressure = ProcBuffer.open(dir + "/cpu.pressure");
+            memoryPressure = ProcBuffer.open(dir + "/memory.pressure");
+        } else {
+            String cpu = resolve(v1Mount("cpu"), paths.get("cpu"));
+            String memory = resolve(v1Mount("memory"), paths.get("memory"));
+            if (cpu != null) {
+                cpuQuota = ProcBuffer.open(cpu + "/cpu.cfs_quota_us");
+                cpuPeriod = ProcBuffer.open(cpu + "/cpu.cfs_period_us");
+                cpuStat = ProcBuffer.open(cpu + "/cpu.stat");
+            }
+            if (memory != null) {
+                memoryLimit = ProcBuffer.open(memory + "/memory.limit_in_bytes");
+                memoryUsage = ProcBuffer.open(memory + "/memory.usage_in_bytes");
+                memoryStat = ProcBuffer.open(memory + "/memory.stat");
+                memoryEvents = ProcBuffer.open(memory + "/memory.oom_control");
+            }
+            // 混合模式下 PSI 只在 unified 层级提供
+            String unified = resolve(cgroupRoot + "/unified", paths.get(""));
+            if (unified != null) {
+                cpuPressure = ProcBuffer.open(unified + "/cpu.pressure");
+                memoryPressure = ProcBuffer.open(unified + "/memory.pressure");
+            }
+        }
+        return cpuStat != null || memoryUsage != null;
+    }
+
+    /**
+     * 关闭保持打开的 cgroup 文件,之后的采集不再上报任何值
+     */
+    @Override
+    public synchronized void close() {
+        RandomAccessFile[] files = {cpuMax, cpuQuota, cpuPeriod, cpuStat, memoryLimit, memoryUsage, memoryStat,
+                memoryEvents, cpuPressure, memoryPressure};
+        for (RandomAccessFile file : files) {
+            ProcBuffer.close(file);
+        }
+        cpuMax = null;
+        cpuQuota = null;
+        cpuPeriod = null;
+        cpuStat = null;
+        memoryLimit = null;
+        memoryUsage = null;
+        memoryStat = null;
+        memoryEvents = null;
+        cpuPressure = null;
+        memoryPressure = null;
+    }
+
+    private void recordCpu(ObservableLongMeasurement quota, ObservableLongMeasurement period,
+                           ObservableLongMeasurement periods, ObservableLongMeasurement throttledPeriods,
+                           ObservableDoubleMeasurement throttledTime) throws IOException {
+        if (v2) {
+            // cpu.max: "$MAX $PERIOD",未限制时 $MAX 为 max
+            if (buffer.read(cpuMax) > 0) {
+                record(quota, buffer.number(0));
+                record(period, buffer.number(buffer.skipFields(0, 1)));
+            }
+        } else {
+            // 未限制时 cfs_quota_us 为 -1,解析结果同样为 -1
+            if (buffer.read(cpuQuota) > 0) {
+                record(quota, buffer.number(0));
+            }
+            if (buffer.read(cpuPeriod) > 0) {
+                record(period, buffer.number(0));
+            }
+        }
+        if (buffer.read(cpuStat) > 0) {
+            record(periods, buffer.value(NR_PERIODS));
+            record(throttledPeriods, buffer.value(NR_THROTTLED));
+            long throttled = buffer.value(v2 ? THROTTLED_USEC : THROTTLED_TIME);
+            if (throttled >= 0) {
+                throttledTime.record(v2 ? throttled / 1e6 : throttled / 1e9);
+            }
+        }
+    }
+
+    private void recordMemory(ObservableLongMeasurement limit, ObservableLongMeasurement usage,
+                              ObservableLongMeasurement workingSet, ObservableLongMeasurement oomEvents)
+            throws IOException {
+        if (buffer.read(memoryLimit) > 0) {
+            long bytes = buffer.number(0);
+            if (bytes < UNLIMITED) {
+                record(limit, bytes);
+            }
+        }
+        long used = -1;
+        if (buffer.read(memoryUsage) > 0) {
+            used = buffer.number(0);
+            record(usage, used);
+        }
+        if (used >= 0 && buffer.read(memoryStat) > 0) {
+            long inactive = buffer.value(v2 ? INACTIVE_FILE : TOTAL_INACTIVE_FILE);
+            if (inactive >= 0) {
+                workingSet.record(Math.max(0, used - inactive));
+            }
+        }
+        if (buffer.read(memoryEvents) > 0) {
+            if (v2) {
+                record(oomEvents, buffer.value(OOM_EVENTS), OOM);
+            }
+            record(oomEvents, buffer.value(OOM_KILL_EVENTS), OOM_KILL);
+        }
+    }
+
+    /**
+     * PSI 文件的 total 为累计停顿时间,单位微秒,full 行在 CPU 上只有较新的内核才提供
+     */
+    private void recordPressure(RandomAccessFile file, ObservableDoubleMeasurement stall) throws IOException {
+        if (buffer.read(file) > 0) {
+            long some = buffer.value(PRESSURE_SOME, PRESSURE_TOTAL);
+            if (some >= 0) {
+                stall.record(some / 1e6, SOME);
+            }
+            long full = buffer.value(PRESSURE_FULL, PRESSURE_TOTAL);
+            if (full >= 0) {
+                stall.record(full / 1e6, FULL);
+            }
+        }
+    }
+
+    private static void record(ObservableLongMeasurement measurement, long value) {
+        if (value >= 0) {
+            measurement.record(value);
+        }
+    }
+
+    private static void record(ObservableLongMeasurement measurement, long value, Attributes attributes) {
+        if (value >= 0) {
+            measurement.record(value, attributes);
+        }
+    }
+
+    /**
+     * 解析 /proc/self/cgroup,返回 controller 到路径的映射,v2 层级的 key 为空字符串
+     */
+    private Map<String, String> cgroupPaths() {
+        Map<String, String> paths = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(Paths.get(procDir, "cgroup"), StandardCharsets.UTF_8)) {
+                String[] fields = line.split(":", 3);
+                if (fields.length < 3) {
+                    continue;
+                }
+                if ("0".equals(fields[0]) && fields[1].isEmpty()) {
+                    paths.put("", fields[2]);
+                } else {
+                    for (String controller : fields[1].split(",")) {
+                        paths.put(controller, fields[2]);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "cgroup is not available", e);
+        }
+        return paths;
+    }
+
+    /**
+     * v1 controller 的挂载目录,可能与其他 controller 合并挂载,例如 cpu,cpuacct
+     */
+    private String v1Mount(String controller) {
+        String[] mounts = new File(cgroupRoot).list();
+        if (mounts == null) {
+            return null;
+        }
+        for (String mount : mounts) {
+            for (String name : mount.split(",")) {
+                if (name.equals(controller)) {
+                    return cgroupRoot + "/" + mount;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 挂载目录下进程所在的 cgroup 目录.容器内通常看不到宿主机上的完整路径,此时挂载目录本身就是容器的 cgroup
+     */
+    private static String resolve(String mount, String path) {
+        if (mount == null || !new File(mount).isDirectory()) {
+            return null;
+        }
+        if (path != null) {
+            File dir = new File(mount, path);
+            if (dir.isDirectory()) {
+                return dir.getPath();
+            }
+        }
+        return mount;
+    }
+}
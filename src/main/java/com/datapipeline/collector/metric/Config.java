@@ -2,6 +2,12 @@ package com.datapipeline.collector.metric;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 @ConfigurationProperties(
         prefix = "collector.sdk"
 )
@@ -14,6 +20,150 @@ public class Config {
     private long timeout = 60;
     private long interval = 30;
     private String appName = "unknown";
+    private int attributesCacheSize = 1024;
+    private String recording = "sync";
+    private int asyncBufferSize = 65536;
+    private String asyncOverflow = "drop";
+    /**
+     * 直方图默认聚合方式: explicit(固定边界) 或 exponential(base2 指数直方图)
+     */
+    private String histogramAggregation = "explicit";
+    /**
+     * 使用指数直方图的指标名,支持 * 与 ? 通配符,不受 histogramAggregation 影响
+     */
+    private List<String> exponentialHistograms = new ArrayList<>();
+    private int exponentialHistogramMaxScale = 20;
+    private int exponentialHistogramMaxBuckets = 160;
+    /**
+     * 单个指标允许的属性组合数量,超出部分记录到 otel.metric.overflow=true 序列,小于等于 0 表示不限制.
+     * 异步记录模式必须有上限,配置为不限制时按 2000 处理
+     */
+    private int cardinalityLimit = 2000;
+    /**
+     * 所有 endpoint 都不可用时将导出失败的批次写入磁盘 spool,恢复后按序回放
+     */
+    private boolean spoolEnabled = false;
+    private String spoolDirectory = System.getProperty("java.io.tmpdir") + File.separator + "collector-sdk-spool";
+    private long spoolMaxBytes = 256L * 1024 * 1024;
+    private int spoolSegmentBytes = 8 * 1024 * 1024;
+    /**
+     * spool 段文件最大保留时间,单位秒
+     */
+    private long spoolMaxAge = 6 * 3600;
+    /**
+     * 每秒最多回放的批次数
+     */
+    private int spoolReplayRate = 5;
+    /**
+     * 回放使用 OTLP/HTTP 直接提交 protobuf 数据的端口
+     */
+    private int spoolReplayPort = 4318;
+    /**
+     * 上一次导出未完成时最多暂存的采集批次数,超出后按序列合并到最新批次
+     */
+    private int exportBacklogSize = 4;
+    /**
+     * 关闭时等待剩余批次导出完成的最长时间,单位秒
+     */
+    private long flushTimeout = 10;
+    /**
+     * 启动时为所有 endpoint 提前建立连接,切换 endpoint 时不再等待握手
+     */
+    private boolean exporterPrewarm = false;
+    /**
+     * 单个 endpoint 连续导出失败多少次后熔断
+     */
+    private int circuitFailureThreshold = 2;
+    /**
+     * 熔断后首次允许试探的等待时间,单位秒,之后每次试探失败按指数退避,最长为 10 倍
+     */
+    private long circuitOpenDuration = 30;
+    /**
+     * 单个批次导出失败后的重试次数,重试会优先发往熔断后切换到的 endpoint
+     */
+    private int exportRetries = 3;
+    /**
+     * 重试的初始退避时间,单位毫秒
+     */
+    private long retryBackoff = 1000;
+    /**
+     * 本地 collector 健康探测的连接与读取超时,单位毫秒
+     */
+    private int probeTimeout = 2000;
+    /**
+     * 单次导出请求的估算编码大小上限,超出时拆分为多个请求,小于等于 0 表示不拆分
+     */
+    private long exportChunkBytes = 3L * 1024 * 1024;
+    /**
+     * 同一批次拆分后同时在途的导出请求数
+     */
+    private int exportParallelism = 2;
+    /**
+     * 聚合时间性: cumulative、delta 或 lowmemory,delta 与 lowmemory 下没有记录的序列在每个周期后释放
+     */
+    private String temporality = "cumulative";
+    /**
+     * 导出协议: grpc 或 http/protobuf,http/protobuf 下 endpoint 应配置为 collector 的 HTTP 端口(默认 4318)
+     */
+    private String transport = "grpc";
+    /**
+     * 导出压缩方式: none 或 gzip
+     */
+    private String compression = "none";
+    /**
+     * 导出时是否使用 TLS 连接 endpoint(https 协议)
+     */
+    private boolean tls = false;
+    /**
+     * 每多少次导出做一次真实编码与压缩,用于校准上报的字节数与压缩比
+     */
+    private int transportStatsSampling = 10;
+    /**
+     * 采集周期对齐到 wall-clock 的周期边界,例如 interval 为 30 时在每分钟的 0 秒与 30 秒采集
+     */
+    private boolean scheduleAlign = false;
+    /**
+     * 首次采集的随机抖动上限,单位毫秒,0 表示不抖动
+     */
+    private long scheduleJitter = 0;
+    /**
+     * 按 instance 哈希在周期内取固定偏移,把同时启动的实例分散到整个周期
+     */
+    private boolean scheduleSpread = false;
+    /**
+     * 指标分组,key 为分组名.meter 名(tag)匹配分组前缀的指标注册到该分组独立的 SdkMeterProvider,按分组的 interval 采集,
+     * 导出与故障切换仍共用同一个 reader;未匹配任何分组的指标按 interval 采集.
+     * 例如 groups.runtime.prefixes=io.opentelemetry.runtime-metrics 与 groups.runtime.interval=60
+     */
+    private Map<String, Group> groups = new LinkedHashMap<>();
+    /**
+     * 上报各状态线程数、阻塞与等待次数以及死锁线程数
+     */
+    private boolean threadDetails = false;
+    /**
+     * 开启 JVM 线程竞争监控以上报阻塞与等待时间,会给加锁带来少量开销
+     */
+    private boolean threadContentionMonitoring = false;
+    /**
+     * 按 CPU 使用率上报前 N 个线程池,0 表示不上报,需要开启 threadDetails
+     */
+    private int threadTopN = 0;
+    /**
+     * 每个采集周期扫描线程的时间预算,单位毫秒,超出后剩余线程在下个周期继续扫描
+     */
+    private long threadScanBudget = 50;
+    /**
+     * 通过 JFR 事件流上报对象分配、锁竞争、safepoint、线程 park 与 GC 暂停,需要 JDK 17 以上
+     */
+    private boolean jfr = false;
+    /**
+     * 锁竞争与线程 park 事件的记录阈值,单位毫秒
+     */
+    private long jfrThreshold = 10;
+    /**
+     * 对象分配采样的速率上限,JFR throttle 格式,例如 150/s
+     */
+    private String jfrAllocationThrottle = "150/s";
 
     public String getInstance() {
         return instance;
@@ -70,4 +220,367 @@ public class Config {
     public void setAppName(String appName) {
         this.appName = appName;
     }
+
+    public int getAttributesCacheSize() {
+        return attributesCacheSize;
+    }
+
+    public void setAttributesCacheSize(int attributesCacheSize) {
+        this.attributesCacheSize = attributesCacheSize;
+    }
+
+    public String getRecording() {
+        return recording;
+    }
+
+    public void setRecording(String recording) {
+        this.recording = recording;
+    }
+
+    public int getAsyncBufferSize() {
+        return asyncBufferSize;
+    }
+
+    public void setAsyncBufferSize(int asyncBufferSize) {
+        this.asyncBufferSize = asyncBufferSize;
+    }
+
+    public String getAsyncOverflow() {
+        return asyncOverflow;
+    }
+
+    public void setAsyncOverflow(String asyncOverflow) {
+        this.asyncOverflow = asyncOverflow;
+    }
+
+    public String getHistogramAggregation() {
+        return histogramAggregation;
+    }
+
+    public void setHistogramAggregation(String histogramAggregation) {
+        this.histogramAggregation = histogramAggregation;
+    }
+
+    public List<String> getExponentialHistograms() {
+        return exponentialHistograms;
+    }
+
+    public void setExponentialHistograms(List<String> exponentialHistograms) {
+        this.exponentialHistograms = exponentialHistograms;
+    }
+
+    public int getExponentialHistogramMaxScale() {
+        return exponentialHistogramMaxScale;
+    }
+
+    public void setExponentialHistogramMaxScale(int exponentialHistogramMaxScale) {
+        this.exponentialHistogramMaxScale = exponentialHistogramMaxScale;
+    }
+
+    public int getExponentialHistogramMaxBuckets() {
+        return exponentialHistogramMaxBuckets;
+    }
+
+    public void setExponentialHistogramMaxBuckets(int exponentialHistogramMaxBuckets) {
+        this.exponentialHistogramMaxBuckets = exponentialHistogramMaxBuckets;
+    }
+
+    public int getCardinalityLimit() {
+        return cardinalityLimit;
+    }
+
+    public void setCardinalityLimit(int cardinalityLimit) {
+        this.cardinalityLimit = cardinalityLimit;
+    }
+
+    public boolean isSpoolEnabled() {
+        return spoolEnabled;
+    }
+
+    public void setSpoolEnabled(boolean spoolEnabled) {
+        this.spoolEnabled = spoolEnabled;
+    }
+
+    public String getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    public void setSpoolDirectory(String spoolDirectory) {
+        this.spoolDirectory = spoolDirectory;
+    }
+
+    public long getSpoolMaxBytes() {
+        return spoolMaxBytes;
+    }
+
+    public void setSpoolMaxBytes(long spoolMaxBytes) {
+        this.spoolMaxBytes = spoolMaxBytes;
+    }
+
+    public int getSpoolSegmentBytes() {
+        return spoolSegmentBytes;
+    }
+
+    public void setSpoolSegmentBytes(int spoolSegmentBytes) {
+        this.spoolSegmentBytes = spoolSegmentBytes;
+    }
+
+    public long getSpoolMaxAge() {
+        return spoolMaxAge;
+    }
+
+    public void setSpoolMaxAge(long spoolMaxAge) {
+        this.spoolMaxAge = spoolMaxAge;
+    }
+
+    public int getSpoolReplayRate() {
+        return spoolReplayRate;
+    }
+
+    public void setSpoolReplayRate(int spoolReplayRate) {
+        this.spoolReplayRate = spoolReplayRate;
+    }
+
+    public int getSpoolReplayPort() {
+        return spoolReplayPort;
+    }
+
+    public void setSpoolReplayPort(int spoolReplayPort) {
+        this.spoolReplayPort = spoolReplayPort;
+    }
+
+    public int getExportBacklogSize() {
+        return exportBacklogSize;
+    }
+
+    public void setExportBacklogSize(int exportBacklogSize) {
+        this.exportBacklogSize = exportBacklogSize;
+    }
+
+    public long getFlushTimeout() {
+        return flushTimeout;
+    }
+
+    public void setFlushTimeout(long flushTimeout) {
+        this.flushTimeout = flushTimeout;
+    }
+
+    public boolean isExporterPrewarm() {
+        return exporterPrewarm;
+    }
+
+    public void setExporterPrewarm(boolean exporterPrewarm) {
+        this.exporterPrewarm = exporterPrewarm;
+    }
+
+    public int getCircuitFailureThreshold() {
+        return circuitFailureThreshold;
+    }
+
+    public void setCircuitFailureThreshold(int circuitFailureThreshold) {
+        this.circuitFailureThreshold = circuitFailureThreshold;
+    }
+
+    public long getCircuitOpenDuration() {
+        return circuitOpenDuration;
+    }
+
+    public void setCircuitOpenDuration(long circuitOpenDuration) {
+        this.circuitOpenDuration = circuitOpenDuration;
+    }
+
+    public int getExportRetries() {
+        return exportRetries;
+    }
+
+    public void setExportRetries(int exportRetries) {
+        this.exportRetries = exportRetries;
+    }
+
+    public long getRetryBackoff() {
+        return retryBackoff;
+    }
+
+    public void setRetryBackoff(long retryBackoff) {
+        this.retryBackoff = retryBackoff;
+    }
+
+    public int getProbeTimeout() {
+        return probeTimeout;
+    }
+
+    public void setProbeTimeout(int probeTimeout) {
+        this.probeTimeout = probeTimeout;
+    }
+
+    public long getExportChunkBytes() {
+        return exportChunkBytes;
+    }
+
+    public void setExportChunkBytes(long exportChunkBytes) {
+        this.exportChunkBytes = exportChunkBytes;
+    }
+
+    public int getExportParallelism() {
+        return exportParallelism;
+    }
+
+    public void setExportParallelism(int exportParallelism) {
+        this.exportParallelism = exportParallelism;
+    }
+
+    public String getTemporality() {
+        return temporality;
+    }
+
+    public void setTemporality(String temporality) {
+        this.temporality = temporality;
+    }
+
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    public String getCompression() {
+        return compression;
+    }
+
+    public void setCompression(String compression) {
+        this.compression = compression;
+    }
+
+    public boolean isTls() {
+        return tls;
+    }
+
+    public void setTls(boolean tls) {
+        this.tls = tls;
+    }
+
+    public int getTransportStatsSampling() {
+        return transportStatsSampling;
+    }
+
+    public void setTransportStatsSampling(int transportStatsSampling) {
+        this.transportStatsSampling = transportStatsSampling;
+    }
+
+    public boolean isScheduleAlign() {
+        return scheduleAlign;
+    }
+
+    public void setScheduleAlign(boolean scheduleAlign) {
+        this.scheduleAlign = scheduleAlign;
+    }
+
+    public long getScheduleJitter() {
+        return scheduleJitter;
+    }
+
+    public void setScheduleJitter(long scheduleJitter) {
+        this.scheduleJitter = scheduleJitter;
+    }
+
+    public boolean isScheduleSpread() {
+        return scheduleSpread;
+    }
+
+    public void setScheduleSpread(boolean scheduleSpread) {
+        this.scheduleSpread = scheduleSpread;
+    }
+
+    public Map<String, Group> getGroups() {
+        return groups;
+    }
+
+    public void setGroups(Map<String, Group> groups) {
+        this.groups = groups;
+    }
+
+    public boolean isThreadDetails() {
+        return threadDetails;
+    }
+
+    public void setThreadDetails(boolean threadDetails) {
+        this.threadDetails = threadDetails;
+    }
+
+    public boolean isThreadContentionMonitoring() {
+        return threadContentionMonitoring;
+    }
+
+    public void setThreadContentionMonitoring(boolean threadContentionMonitoring) {
+        this.threadContentionMonitoring = threadContentionMonitoring;
+    }
+
+    public int getThreadTopN() {
+        return threadTopN;
+    }
+
+    public void setThreadTopN(int threadTopN) {
+        this.threadTopN = threadTopN;
+    }
+
+    public long getThreadScanBudget() {
+        return threadScanBudget;
+    }
+
+    public void setThreadScanBudget(long threadScanBudget) {
+        this.threadScanBudget = threadScanBudget;
+    }
+
+    public boolean isJfr() {
+        return jfr;
+    }
+
+    public void setJfr(boolean jfr) {
+        this.jfr = jfr;
+    }
+
+    public long getJfrThreshold() {
+        return jfrThreshold;
+    }
+
+    public void setJfrThreshold(long jfrThreshold) {
+        this.jfrThreshold = jfrThreshold;
+    }
+
+    public String getJfrAllocationThrottle() {
+        return jfrAllocationThrottle;
+    }
+
+    public void setJfrAllocationThrottle(String jfrAllocationThrottle) {
+        this.jfrAllocationThrottle = jfrAllocationThrottle;
+    }
+
+    public static class Group {
+        /**
+         * meter 名前缀,内置 JVM 指标为 io.opentelemetry.runtime-metrics,SDK 自身指标为 com.datapipeline.collector.sdk
+         */
+        private List<String> prefixes = new ArrayList<>();
+        /**
+         * 采集周期,单位秒
+         */
+        private long interval = 30;
+
+        public List<String> getPrefixes() {
+            return prefixes;
+        }
+
+        public void setPrefixes(List<String> prefixes) {
+            this.prefixes = prefixes;
+        }
+
+        public long getInterval() {
+            return interval;
+        }
+
+        public void setInterval(long interval) {
+            this.interval = interval;
+        }
+    }
 }
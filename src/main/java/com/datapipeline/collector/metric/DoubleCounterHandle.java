@@ -0,0 +1,71 @@
+package com.datapipeline.collector.metric;
+
+import com.datapipeline.collector.recording.AsyncRecorder;
+import com.datapipeline.collector.recording.RecordTarget;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleCounter;
+
+/**
+ * double 型计数器句柄,通过 {@link MetricReporter#doubleCounter} 获取,可缓存复用
+ */
+public final class DoubleCounterHandle extends InstrumentHandle<DoubleCounterHandle.Bound> {
+
+    private final DoubleCounter instrument;
+
+    DoubleCounterHandle(DoubleCounter instrument, AsyncRecorder recorder, CardinalityLimiter limiter) {
+        super(recorder, limiter);
+        this.instrument = instrument;
+    }
+
+    public void add(double value) {
+        if (recorder != null) {
+            bind(Attributes.empty()).add(value);
+        } else {
+            instrument.add(value);
+        }
+    }
+
+    public void add(double value, Attributes attributes) {
+        if (recorder != null) {
+            bind(attributes).add(value);
+        } else {
+            instrument.add(value, limit(attributes));
+        }
+    }
+
+    @Override
+    Bound newBound(Attributes attributes) {
+        return new Bound(instrument, attributes, recorder);
+    }
+
+    public static final class Bound implements RecordTarget {
+        private final DoubleCounter instrument;
+        private final Attributes attributes;
+        private final AsyncRecorder recorder;
+        private final int id;
+
+        private Bound(DoubleCounter instrument, Attributes attributes, AsyncRecorder recorder) {
+            this.instrument = instrument;
+            this.attributes = attributes;
+            this.recorder = recorder;
+            this.id = recorder == null ? -1 : recorder.register(this);
+        }
+
+        public void add(double value) {
+            if (recorder != null) {
+                recorder.record(id, value);
+            } else {
+                instrument.add(value, attributes);
+            }
+        }
+
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public void apply(long value) {
+            instrument.add(Double.longBitsToDouble(value), attributes);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.datapipeline.collector.metric;
+
+import com.datapipeline.collector.recording.AsyncRecorder;
+import com.datapipeline.collector.recording.RecordTarget;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleUpDownCounter;
+
+/**
+ * double 型可增减计数器句柄,通过 {@link MetricReporter#doubleUpDownCounter} 获取,可缓存复用
+ */
+public final class DoubleUpDownCounterHandle extends InstrumentHandle<DoubleUpDownCounterHandle.Bound> {
+
+    private final DoubleUpDownCounter instrument;
+
+    DoubleUpDownCounterHandle(DoubleUpDownCounter instrument, AsyncRecorder recorder, CardinalityLimiter limiter) {
+        super(recorder, limiter);
+        this.instrument = instrument;
+    }
+
+    public void add(double value) {
+        if (recorder != null) {
+            bind(Attributes.empty()).add(value);
+        } else {
+            instrument.add(value);
+        }
+    }
+
+    public void add(double value, Attributes attributes) {
+        if (recorder != null) {
+            bind(attributes).add(value);
+        } else {
+            instrument.add(value, limit(attributes));
+        }
+    }
+
+    @Override
+    Bound newBound(Attributes attributes) {
+        return new Bound(instrument, attributes, recorder);
+    }
+
+    public static final class Bound implements RecordTarget {
+        private final DoubleUpDownCounter instrument;
+        private final Attributes attributes;
+        private final AsyncRecorder recorder;
+        private final int id;
+
+        private Bound(DoubleUpDownCounter instrument, Attributes attributes, AsyncRecorder recorder) {
+            this.instrument = instrument;
+            this.attributes = attributes;
+            this.recorder = recorder;
+            this.id = recorder == null ? -1 : recorder.register(this);
+        }
+
+        public void add(double value) {
+            if (recorder != null) {
+                recorder.record(id, value);
+            } else {
+                instrument.add(value, attributes);
+            }
+        }
+
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public void apply(long value) {
+            instrument.add(Double.longBitsToDouble(value), attributes);
+        }
+    }
+}
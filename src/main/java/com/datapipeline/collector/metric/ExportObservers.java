@@ -0,0 +1,155 @@
+package com.datapipeline.collector.metric;
+
+import com.datapipeline.collector.failover.FailoverMetricReader;
+import com.datapipeline.collector.failover.PipelineStats;
+import com.datapipeline.collector.failover.TransportStats;
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+import java.util.Map;
+
+/**
+ * 采集与导出流水线自身的指标:各分组的采集耗时与规模、各 endpoint 的导出耗时、字节数及压缩比、backlog、失败分片、failover 事件及当前 endpoint
+ */
+public class ExportObservers implements MBeanObservers {
+
+    private static final AttributeKey<String> ENDPOINT_KEY = AttributeKey.stringKey("endpoint");
+    private static final AttributeKey<String> TYPE_KEY = AttributeKey.stringKey("type");
+    private static final Attributes FAILOVER = Attributes.of(TYPE_KEY, "failover");
+    private static final Attributes RECOVERY = Attributes.of(TYPE_KEY, "recovery");
+
+    private final FailoverMetricReader reader;
+    private final TransportStats transportStats;
+    private final PipelineStats pipelineStats;
+
+    public ExportObservers(FailoverMetricReader reader) {
+        this.reader = reader;
+        this.transportStats = reader.getTransportStats();
+        this.pipelineStats = reader.getPipelineStats();
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        Meter meter = sdk.meterBuilder(SDK_INSTRUMENTATION_NAME).build();
+        pipelineStats.bind(
+                meter
+                        .histogramBuilder("collector.sdk.collect.duration")
+                        .setDescription("Time spent collecting all metrics of a group in one cycle")
+                        .setUnit("ms")
+                        .build(),
+                meter
+                        .histogramBuilder("collector.sdk.export.duration")
+                        .setDescription("Latency of export requests per endpoint")
+                        .setUnit("ms")
+                        .build());
+
+        meter
+                .counterBuilder("collector.sdk.collect.cycles")
+                .setDescription("Number of collection cycles per group")
+                .setUnit("{cycles}")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            for (PipelineStats.Group group : pipelineStats.getGroups().values()) {
+                                observableMeasurement.record(group.getCollections(), group.getAttributes());
+                            }
+                        });
+
+        meter
+                .gaugeBuilder("collector.sdk.collect.metrics")
+                .ofLongs()
+                .setDescription("Number of metrics in the last collection of each group")
+                .setUnit("{metrics}")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            for (PipelineStats.Group group : pipelineStats.getGroups().values()) {
+                                observableMeasurement.record(group.getLastMetrics(), group.getAttributes());
+                            }
+                        });
+
+        meter
+                .gaugeBuilder("collector.sdk.collect.series")
+                .ofLongs()
+                .setDescription("Number of points (series) in the last collection of each group")
+                .setUnit("{series}")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            for (PipelineStats.Group group : pipelineStats.getGroups().values()) {
+                                observableMeasurement.record(group.getLastPoints(), group.getAttributes());
+                            }
+                        });
+
+        meter
+                .counterBuilder("collector.sdk.export.queued")
+                .setDescription("Number of collections queued because the previous export was still in flight")
+                .setUnit("{cycles}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(pipelineStats.getQueued()));
+
+        meter
+                .counterBuilder("collector.sdk.export.merged")
+                .setDescription("Number of collections merged into a pending batch because the backlog was full")
+                .setUnit("{cycles}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(reader.getBacklogMerged()));
+
+        meter
+                .upDownCounterBuilder("collector.sdk.export.backlog")
+                .setDescription("Number of batches waiting in the export backlog")
+                .setUnit("{batches}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(reader.getBacklogSize()));
+
+        meter
+                .counterBuilder("collector.sdk.export.failed")
+                .setDescription("Number of export chunks that still failed after all retries")
+                .setUnit("{chunks}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(pipelineStats.getFailedChunks()));
+
+        meter
+                .counterBuilder("collector.sdk.failover.events")
+                .setDescription("Number of switches away from and back to the local collector")
+                .setUnit("{events}")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            observableMeasurement.record(pipelineStats.getFailovers(), FAILOVER);
+                            observableMeasurement.record(pipelineStats.getRecoveries(), RECOVERY);
+                        });
+
+        meter
+                .upDownCounterBuilder("collector.sdk.endpoint.active")
+                .setDescription("Endpoint currently used for export")
+                .setUnit("1")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(1, Attributes.of(ENDPOINT_KEY, pipelineStats.getActiveEndpoint())));
+        meter
+                .counterBuilder("collector.sdk.export.encoded")
+                .setDescription("Estimated protobuf bytes successfully exported, before compression")
+                .setUnit("By")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            for (Map.Entry<String, TransportStats.Endpoint> entry : transportStats.getEndpoints().entrySet()) {
+                                observableMeasurement.record(entry.getValue().getEncodedBytes(), Attributes.of(ENDPOINT_KEY, entry.getKey()));
+                            }
+                        });
+
+        meter
+                .counterBuilder("collector.sdk.export.sent")
+                .setDescription("Estimated bytes successfully sent on the wire, after compression")
+                .setUnit("By")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            for (Map.Entry<String, TransportStats.Endpoint> entry : transportStats.getEndpoints().entrySet()) {
+                                observableMeasurement.record(entry.getValue().getSentBytes(), Attributes.of(ENDPOINT_KEY, entry.getKey()));
+                            }
+                        });
+
+        meter
+                .gaugeBuilder("collector.sdk.export.compression.ratio")
+                .setDescription("Ratio of encoded to compressed size of the last sampled export")
+                .setUnit("1")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            for (Map.Entry<String, TransportStats.Endpoint> entry : transportStats.getEndpoints().entrySet()) {
+                                observableMeasurement.record(entry.getValue().getCompressionRatio(), Attributes.of(ENDPOINT_KEY, entry.getKey()));
+                            }
+                        });
+    }
+}
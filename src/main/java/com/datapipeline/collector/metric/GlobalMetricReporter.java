@@ -0,0 +1,40 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.Attributes;
+
+/**
+ * 进程级 {@link MetricReporter} 注册入口.
+ *
+ * <p>{@link MetricReporter#initEnv()} 完成后会将自身注册到这里,注解处理器生成的静态指标字段通过它延迟解析,
+ * 因此 {@code @MCounter}/{@code @MHistogram} 不依赖 Spring 注入,普通类中同样可用.
+ */
+public final class GlobalMetricReporter {
+
+    private static volatile MetricReporter reporter;
+
+    private GlobalMetricReporter() {
+    }
+
+    public static void set(MetricReporter reporter) {
+        GlobalMetricReporter.reporter = reporter;
+    }
+
+    /**
+     * 返回已注册的 {@link MetricReporter},尚未初始化时返回 null
+     */
+    public static MetricReporter get() {
+        return reporter;
+    }
+
+    public static LazyBoundCounter counter(String tag, String metric, String unit, String description, Attributes attributes) {
+        return new LazyBoundCounter(tag, metric, unit, description, attributes);
+    }
+
+    public static LazyBoundHistogram histogram(String tag, String metric, String unit, String description, Attributes attributes) {
+        return histogram(tag, metric, unit, description, attributes, false);
+    }
+
+    public static LazyBoundHistogram histogram(String tag, String metric, String unit, String description, Attributes attributes, boolean outcome) {
+        return new LazyBoundHistogram(tag, metric, unit, description, attributes, outcome);
+    }
+}
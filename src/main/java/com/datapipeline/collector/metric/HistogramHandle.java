@@ -0,0 +1,71 @@
+package com.datapipeline.collector.metric;
+
+import com.datapipeline.collector.recording.AsyncRecorder;
+import com.datapipeline.collector.recording.RecordTarget;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+
+/**
+ * 直方图句柄,通过 {@link MetricReporter#histogram} 获取,可缓存复用
+ */
+public final class HistogramHandle extends InstrumentHandle<HistogramHandle.Bound> {
+
+    private final DoubleHistogram instrument;
+
+    HistogramHandle(DoubleHistogram instrument, AsyncRecorder recorder, CardinalityLimiter limiter) {
+        super(recorder, limiter);
+        this.instrument = instrument;
+    }
+
+    public void record(double value) {
+        if (recorder != null) {
+            bind(Attributes.empty()).record(value);
+        } else {
+            instrument.record(value);
+        }
+    }
+
+    public void record(double value, Attributes attributes) {
+        if (recorder != null) {
+            bind(attributes).record(value);
+        } else {
+            instrument.record(value, limit(attributes));
+        }
+    }
+
+    @Override
+    Bound newBound(Attributes attributes) {
+        return new Bound(instrument, attributes, recorder);
+    }
+
+    public static final class Bound implements RecordTarget {
+        private final DoubleHistogram instrument;
+        private final Attributes attributes;
+        private final AsyncRecorder recorder;
+        private final int id;
+
+        private Bound(DoubleHistogram instrument, Attributes attributes, AsyncRecorder recorder) {
+            this.instrument = instrument;
+            this.attributes = attributes;
+            this.recorder = recorder;
+            this.id = recorder == null ? -1 : recorder.register(this);
+        }
+
+        public void record(double value) {
+            if (recorder != null) {
+                recorder.record(id, value);
+            } else {
+                instrument.record(value, attributes);
+            }
+        }
+
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public void apply(long value) {
+            instrument.record(Double.longBitsToDouble(value), attributes);
+        }
+    }
+}
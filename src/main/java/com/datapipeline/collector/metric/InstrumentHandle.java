@@ -0,0 +1,46 @@
+package com.datapipeline.collector.metric;
+
+import com.datapipeline.collector.recording.AsyncRecorder;
+import io.opentelemetry.api.common.Attributes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 指标句柄的公共部分.同步模式下每次 bind 直接创建绑定对象;
+ * 异步模式下绑定对象需要在 {@link AsyncRecorder} 中注册 id,因此按属性缓存,同一组属性只注册一次.
+ * 属性先经过 {@link CardinalityLimiter},因此缓存大小同样受属性组合上限约束.
+ */
+abstract class InstrumentHandle<B> {
+
+    final AsyncRecorder recorder;
+    private final CardinalityLimiter limiter;
+    private final Map<Attributes, B> bounds;
+
+    InstrumentHandle(AsyncRecorder recorder, CardinalityLimiter limiter) {
+        this.recorder = recorder;
+        this.limiter = limiter;
+        this.bounds = recorder == null ? null : new ConcurrentHashMap<>();
+    }
+
+    /**
+     * 绑定一组固定属性,返回的绑定对象记录时不再查找指标及构造属性.超过属性组合上限时绑定到溢出序列
+     */
+    public B bind(Attributes attributes) {
+        attributes = limit(attributes);
+        if (bounds == null) {
+            return newBound(attributes);
+        }
+        B bound = bounds.get(attributes);
+        if (bound == null) {
+            bound = bounds.computeIfAbsent(attributes, this::newBound);
+        }
+        return bound;
+    }
+
+    final Attributes limit(Attributes attributes) {
+        return limiter == null ? attributes : limiter.apply(attributes);
+    }
+
+    abstract B newBound(Attributes attributes);
+}
@@ -0,0 +1,28 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JFR 事件流指标:对象分配、锁竞争、safepoint、线程 park 与 GC 暂停.
+ *
+ * <p>RecordingStream 需要 JDK 17 以上,实现位于 src/main/java17,打包到 multi-release jar 的 META-INF/versions/17;
+ * 在更低版本的 JDK 上加载的是这里的空实现,不注册任何指标.
+ */
+public class JfrEvents implements MBeanObservers, AutoCloseable {
+    private static final Logger logger = Logger.getLogger(JfrEvents.class.getName());
+
+    public JfrEvents(Config config) {
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        logger.log(Level.INFO, "JFR event streaming requires JDK 17 or later, JFR metrics are disabled");
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,48 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.Attributes;
+
+/**
+ * 延迟绑定的计数器,首次记录时通过 {@link GlobalMetricReporter} 解析并绑定属性,之后直接记录到该句柄.
+ * {@link MetricReporter} 尚未初始化时的记录会被丢弃.
+ */
+public final class LazyBoundCounter {
+
+    private final String tag;
+    private final String metric;
+    private final String unit;
+    private final String description;
+    private final Attributes attributes;
+
+    // Bound 的字段均为 final,无需 volatile 即可安全发布,并发下最多重复解析一次
+    private CounterHandle.Bound bound;
+
+    LazyBoundCounter(String tag, String metric, String unit, String description, Attributes attributes) {
+        this.tag = tag;
+        this.metric = metric;
+        this.unit = unit;
+        this.description = description;
+        this.attributes = attributes;
+    }
+
+    public void increment() {
+        CounterHandle.Bound bound = this.bound;
+        if (bound == null) {
+            bound = resolve();
+            if (bound == null) {
+                return;
+            }
+        }
+        bound.increment();
+    }
+
+    private CounterHandle.Bound resolve() {
+        MetricReporter reporter = GlobalMetricReporter.get();
+        if (reporter == null) {
+            return null;
+        }
+        CounterHandle.Bound bound = reporter.counter(tag, metric, unit, description).bind(attributes);
+        this.bound = bound;
+        return bound;
+    }
+}
@@ -0,0 +1,88 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 延迟绑定的直方图,首次记录时通过 {@link GlobalMetricReporter} 解析并绑定属性,之后直接记录到该句柄.
+ * {@link MetricReporter} 尚未初始化时的记录会被丢弃.
+ *
+ * <p>开启 outcome 时,正常返回记录到附加 outcome=success 的序列,抛出异常记录到附加 outcome=error
+ * 及 exception=异常类名 的序列,每种异常类只绑定一次.
+ */
+public final class LazyBoundHistogram {
+
+    static final AttributeKey<String> OUTCOME_KEY = AttributeKey.stringKey("outcome");
+    static final AttributeKey<String> EXCEPTION_KEY = AttributeKey.stringKey("exception");
+
+    private final String tag;
+    private final String metric;
+    private final String unit;
+    private final String description;
+    private final Attributes attributes;
+    private final Map<Class<?>, HistogramHandle.Bound> errorBounds;
+
+    // Bound 的字段均为 final,无需 volatile 即可安全发布,并发下最多重复解析一次
+    private HistogramHandle.Bound bound;
+
+    LazyBoundHistogram(String tag, String metric, String unit, String description, Attributes attributes, boolean outcome) {
+        this.tag = tag;
+        this.metric = metric;
+        this.unit = unit;
+        this.description = description;
+        if (outcome) {
+            this.attributes = attributes.toBuilder().put(OUTCOME_KEY, "success").build();
+            this.errorBounds = new ConcurrentHashMap<>();
+        } else {
+            this.attributes = attributes;
+            this.errorBounds = null;
+        }
+    }
+
+    public void record(double value) {
+        HistogramHandle.Bound bound = this.bound;
+        if (bound == null) {
+            bound = resolve();
+            if (bound == null) {
+                return;
+            }
+        }
+        bound.record(value);
+    }
+
+    /**
+     * 记录一次调用耗时,error 为 null 表示正常返回
+     */
+    public void record(double value, Throwable error) {
+        if (error == null || errorBounds == null) {
+            record(value);
+            return;
+        }
+        HistogramHandle.Bound bound = errorBounds.get(error.getClass());
+        if (bound == null) {
+            MetricReporter reporter = GlobalMetricReporter.get();
+            if (reporter == null) {
+                return;
+            }
+            HistogramHandle handle = reporter.histogram(tag, metric, unit, description);
+            bound = errorBounds.computeIfAbsent(error.getClass(), type -> handle.bind(attributes.toBuilder()
+                    .put(OUTCOME_KEY, "error")
+                    .put(EXCEPTION_KEY, type.getName())
+                    .build()));
+        }
+        bound.record(value);
+    }
+
+    private HistogramHandle.Bound resolve() {
+        MetricReporter reporter = GlobalMetricReporter.get();
+        if (reporter == null) {
+            return null;
+        }
+        HistogramHandle.Bound bound = reporter.histogram(tag, metric, unit, description).bind(attributes);
+        this.bound = bound;
+        return bound;
+    }
+}
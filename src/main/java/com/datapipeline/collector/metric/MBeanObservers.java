@@ -4,5 +4,6 @@ import io.opentelemetry.sdk.metrics.SdkMeterProvider;
 
 public interface MBeanObservers {
     public static final String INSTRUMENTATION_NAME = "io.opentelemetry.runtime-metrics";
+    public static final String SDK_INSTRUMENTATION_NAME = "com.datapipeline.collector.sdk";
     void registerObservers(SdkMeterProvider sdk);
 }
@@ -1,36 +1,85 @@
 package com.datapipeline.collector.metric;
 
 import com.datapipeline.collector.failover.FailoverMetricReader;
-import io.opentelemetry.api.common.AttributeKey;
+import com.datapipeline.collector.recording.AsyncRecorder;
 import io.opentelemetry.api.common.Attributes;
 import io.opentelemetry.api.metrics.*;
-import io.opentelemetry.sdk.internal.AttributesMap;
-import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import io.opentelemetry.sdk.metrics.*;
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality;
+import io.opentelemetry.sdk.metrics.export.AggregationTemporalitySelector;
 import io.opentelemetry.sdk.metrics.export.MetricReader;
 import io.opentelemetry.sdk.resources.Resource;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class MetricReporter {
+    private static final Logger logger = Logger.getLogger(MetricReporter.class.getName());
+    /**
+     * 异步模式下未配置属性组合上限时使用的上限,与 SDK 单个指标的序列上限一致
+     */
+    private static final int ASYNC_CARDINALITY_LIMIT = 2000;
 
     private SdkMeterProvider sdk;
-    private final Map<String, LongCounter> longCounterMap = new ConcurrentHashMap<>();
-    private final Map<String, DoubleCounter> doubleCounterMap = new ConcurrentHashMap<>();
-    private final Map<String, DoubleHistogram> doubleHistogramMap = new ConcurrentHashMap<>();
-    private final Map<String, DoubleUpDownCounter> doubleUpDownCounterMap = new ConcurrentHashMap<>();
+    private final Map<String, CounterHandle> counterMap = new ConcurrentHashMap<>();
+    private final Map<String, DoubleCounterHandle> doubleCounterMap = new ConcurrentHashMap<>();
+    private final Map<String, HistogramHandle> histogramMap = new ConcurrentHashMap<>();
+    private final Map<String, UpDownCounterHandle> upDownCounterMap = new ConcurrentHashMap<>();
+    private final Map<String, DoubleUpDownCounterHandle> doubleUpDownCounterMap = new ConcurrentHashMap<>();
+    private final Map<String, StripedCounterHandle> stripedCounterMap = new ConcurrentHashMap<>();
+    private final Map<String, StripedDoubleCounterHandle> stripedDoubleCounterMap = new ConcurrentHashMap<>();
+    private final Map<String, StripedCounterHandle> stripedUpDownCounterMap = new ConcurrentHashMap<>();
+    private final Map<String, StripedDoubleCounterHandle> stripedDoubleUpDownCounterMap = new ConcurrentHashMap<>();
 
 
     private final Config config;
+    private final AttributesCache attributesCache;
+    private final AsyncRecorder recorder;
+    private final int cardinalityLimit;
+    private final List<CardinalityLimiter> limiters = new CopyOnWriteArrayList<>();
+    /**
+     * 需要随采集周期重置的上限,按指标分组划分,默认分组的 key 为空字符串
+     */
+    private final Map<String, List<CardinalityLimiter>> resettableLimiters = new ConcurrentHashMap<>();
+    /**
+     * 指标分组独立的 SdkMeterProvider,只在 {@link #initEnv()} 内部构建 SDK 时创建
+     */
+    private final Map<String, SdkMeterProvider> groupSdks = new LinkedHashMap<>();
+    private final AggregationTemporalitySelector temporalitySelector;
+    private FailoverMetricReader reader;
 
     public MetricReporter(Config config) {
         this.config = config;
+        this.attributesCache = new AttributesCache(config.getAttributesCacheSize());
+        if ("async".equalsIgnoreCase(config.getRecording())) {
+            this.recorder = new AsyncRecorder(config.getAsyncBufferSize(), overflowPolicy(config.getAsyncOverflow()));
+        } else {
+            this.recorder = null;
+        }
+        if (recorder != null && config.getCardinalityLimit() <= 0) {
+            // 异步模式按属性缓存绑定对象并在 AsyncRecorder 中注册 id,不限制时两者都会无限增长
+            logger.log(Level.WARNING, "Async recording requires a cardinality limit, using " + ASYNC_CARDINALITY_LIMIT);
+            this.cardinalityLimit = ASYNC_CARDINALITY_LIMIT;
+        } else {
+            this.cardinalityLimit = config.getCardinalityLimit();
+        }
+        this.temporalitySelector = FailoverMetricReader.temporalitySelector(config.getTemporality());
+        if (config.isThreadDetails()) {
+            jvmMetrics.add(new ThreadDetails(config));
+        }
+        if (config.isJfr()) {
+            jvmMetrics.add(new JfrEvents(config));
+        }
     }
 
     private final List<MBeanObservers> jvmMetrics = new ArrayList<MBeanObservers>() {{
@@ -40,12 +89,39 @@ public class MetricReporter {
         add(new GarbageCollector());
         add(new MemoryPools());
         add(new Threads());
+        add(new ProcFs());
+        add(new Cgroup());
     }};
 
     /**
      * 初始化SDK及相关默认指标
      */
     public void initEnv() {
+        initEnv(buildSdk());
+    }
+
+    /**
+     * 使用外部构建的 SdkMeterProvider 初始化,便于测试及基准测试接入自定义的 MetricReader
+     */
+    public void initEnv(SdkMeterProvider sdk) {
+        this.sdk = sdk;
+        SdkMeterProvider runtimeSdk = provider(MBeanObservers.INSTRUMENTATION_NAME);
+        for (MBeanObservers mBeanObservers : jvmMetrics) {
+            mBeanObservers.registerObservers(runtimeSdk);
+        }
+        SdkMeterProvider selfSdk = provider(MBeanObservers.SDK_INSTRUMENTATION_NAME);
+        if (recorder != null) {
+            new AsyncRecorderObservers(recorder).registerObservers(selfSdk);
+        }
+        new CardinalityObservers(limiters).registerObservers(selfSdk);
+        new ReporterObservers(this).registerObservers(selfSdk);
+        if (reader != null) {
+            new ExportObservers(reader).registerObservers(selfSdk);
+        }
+        GlobalMetricReporter.set(this);
+    }
+
+    private SdkMeterProvider buildSdk() {
         String hostname;
         try {
             hostname = System.getenv("COLLECTOR_SDK_IP");
@@ -65,83 +141,273 @@ public class MetricReporter {
         Resource resource = Resource.create(attributes);
         //MetricExporter exporter = OtlpGrpcMetricExporter.builder().setEndpoint("http://".concat(config.getEndpoint())).setTimeout(Duration.ofSeconds(config.getTimeout())).build();
         //MetricReader reader = PeriodicMetricReader.builder(exporter).setInterval(config.getInterval(), TimeUnit.SECONDS).build();
-        MetricReader reader = FailoverMetricReader.builder(config).setHostname(hostname).setInterval(config.getInterval(), TimeUnit.SECONDS).build();
-        sdk = SdkMeterProvider.builder().setResource(resource).registerMetricReader(reader).build();
+        reader = FailoverMetricReader.builder(config).setHostname(hostname).setInterval(config.getInterval(), TimeUnit.SECONDS)
+                .addCollectionListener(() -> resetLimiters("")).build();
+        for (Map.Entry<String, Config.Group> group : config.getGroups().entrySet()) {
+            String name = group.getKey();
+            MetricReader groupReader = reader.newGroupReader(name, group.getValue().getInterval(), TimeUnit.SECONDS,
+                    () -> resetLimiters(name));
+            groupSdks.put(name, sdkBuilder(resource).registerMetricReader(groupReader).build());
+        }
+        return sdkBuilder(resource).registerMetricReader(reader).build();
+    }
+
+    private SdkMeterProviderBuilder sdkBuilder(Resource resource) {
+        SdkMeterProviderBuilder builder = SdkMeterProvider.builder().setResource(resource);
+        if (!config.getExponentialHistograms().isEmpty()) {
+            View view = View.builder().setAggregation(Aggregation.base2ExponentialBucketHistogram(
+                    config.getExponentialHistogramMaxBuckets(), config.getExponentialHistogramMaxScale())).build();
+            for (String name : config.getExponentialHistograms()) {
+                builder.registerView(InstrumentSelector.builder().setType(InstrumentType.HISTOGRAM).setName(name).build(), view);
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * meter 名匹配的指标分组,未匹配时返回空字符串表示默认分组
+     */
+    private String group(String tag) {
+        if (groupSdks.isEmpty()) {
+            return "";
+        }
+        for (Map.Entry<String, Config.Group> group : config.getGroups().entrySet()) {
+            for (String prefix : group.getValue().getPrefixes()) {
+                if (tag.startsWith(prefix)) {
+                    return group.getKey();
+                }
+            }
+        }
+        return "";
+    }
+
+    private SdkMeterProvider provider(String tag) {
+        SdkMeterProvider groupSdk = groupSdks.get(group(tag));
+        return groupSdk != null ? groupSdk : sdk;
+    }
+
+    /**
+     * 停止异步记录线程并关闭SDK,关闭前会导出剩余指标
+     */
+    public void shutdown() {
+        if (recorder != null) {
+            recorder.shutdown(5, TimeUnit.SECONDS);
+        }
         for (MBeanObservers mBeanObservers : jvmMetrics) {
-            mBeanObservers.registerObservers(sdk);
+            if (mBeanObservers instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) mBeanObservers).close();
+                } catch (Exception e) {
+                    logger.log(Level.WARNING, "Failed to close " + mBeanObservers.getClass().getSimpleName(), e);
+                }
+            }
+        }
+        // 分组 reader 通过主 reader 导出,需要先关闭
+        for (SdkMeterProvider groupSdk : groupSdks.values()) {
+            groupSdk.shutdown().join(10, TimeUnit.SECONDS);
         }
+        if (sdk != null) {
+            sdk.shutdown().join(10, TimeUnit.SECONDS);
+        }
+    }
+
+    public CounterHandle counter(String tag, String metric, String unit, String description) {
+        return counterMap.computeIfAbsent(tag.concat(metric), name -> {
+            Meter meter = provider(tag).meterBuilder(tag).build();
+            return new CounterHandle(meter.counterBuilder(metric).setUnit(unit).setDescription(description).build(), recorder, limiter(tag, metric, InstrumentType.COUNTER));
+        });
+    }
+
+    public CounterHandle counter(String tag, String metric) {
+        return counter(tag, metric, "", "");
+    }
+
+    public DoubleCounterHandle doubleCounter(String tag, String metric, String unit, String description) {
+        return doubleCounterMap.computeIfAbsent(tag.concat(metric), name -> {
+            Meter meter = provider(tag).meterBuilder(tag).build();
+            return new DoubleCounterHandle(meter.counterBuilder(metric).setUnit(unit).setDescription(description).ofDoubles().build(), recorder, limiter(tag, metric, InstrumentType.COUNTER));
+        });
+    }
+
+    public DoubleCounterHandle doubleCounter(String tag, String metric) {
+        return doubleCounter(tag, metric, "", "");
+    }
+
+    public HistogramHandle histogram(String tag, String metric, String unit, String description) {
+        return histogramMap.computeIfAbsent(tag.concat(metric), name -> {
+            Meter meter = provider(tag).meterBuilder(tag).build();
+            return new HistogramHandle(meter.histogramBuilder(metric).setUnit(unit).setDescription(description).build(), recorder, limiter(tag, metric, InstrumentType.HISTOGRAM));
+        });
+    }
+
+    public HistogramHandle histogram(String tag, String metric) {
+        return histogram(tag, metric, "", "");
+    }
+
+    public UpDownCounterHandle upDownCounter(String tag, String metric, String unit, String description) {
+        return upDownCounterMap.computeIfAbsent(tag.concat(metric), name -> {
+            Meter meter = provider(tag).meterBuilder(tag).build();
+            return new UpDownCounterHandle(meter.upDownCounterBuilder(metric).setUnit(unit).setDescription(description).build(), recorder, limiter(tag, metric, InstrumentType.UP_DOWN_COUNTER));
+        });
+    }
+
+    public UpDownCounterHandle upDownCounter(String tag, String metric) {
+        return upDownCounter(tag, metric, "", "");
+    }
+
+    public DoubleUpDownCounterHandle doubleUpDownCounter(String tag, String metric, String unit, String description) {
+        return doubleUpDownCounterMap.computeIfAbsent(tag.concat(metric), name -> {
+            Meter meter = provider(tag).meterBuilder(tag).build();
+            return new DoubleUpDownCounterHandle(meter.upDownCounterBuilder(metric).setUnit(unit).setDescription(description).ofDoubles().build(), recorder, limiter(tag, metric, InstrumentType.UP_DOWN_COUNTER));
+        });
+    }
+
+    public DoubleUpDownCounterHandle doubleUpDownCounter(String tag, String metric) {
+        return doubleUpDownCounter(tag, metric, "", "");
+    }
+
+    /**
+     * 分段本地累加的计数器,适合在热点循环中对同一组属性高频计数,采集时才汇入SDK
+     */
+    public StripedCounterHandle stripedCounter(String tag, String metric, String unit, String description) {
+        return stripedCounterMap.computeIfAbsent(tag.concat(metric), name -> {
+            StripedCounterHandle handle = new StripedCounterHandle(limiter(tag, metric));
+            provider(tag).meterBuilder(tag).build().counterBuilder(metric).setUnit(unit).setDescription(description).buildWithCallback(handle.callback());
+            return handle;
+        });
+    }
+
+    public StripedDoubleCounterHandle stripedDoubleCounter(String tag, String metric, String unit, String description) {
+        return stripedDoubleCounterMap.computeIfAbsent(tag.concat(metric), name -> {
+            StripedDoubleCounterHandle handle = new StripedDoubleCounterHandle(limiter(tag, metric));
+            provider(tag).meterBuilder(tag).build().counterBuilder(metric).setUnit(unit).setDescription(description).ofDoubles().buildWithCallback(handle.callback());
+            return handle;
+        });
+    }
+
+    public StripedCounterHandle stripedUpDownCounter(String tag, String metric, String unit, String description) {
+        return stripedUpDownCounterMap.computeIfAbsent(tag.concat(metric), name -> {
+            StripedCounterHandle handle = new StripedCounterHandle(limiter(tag, metric));
+            provider(tag).meterBuilder(tag).build().upDownCounterBuilder(metric).setUnit(unit).setDescription(description).buildWithCallback(handle.callback());
+            return handle;
+        });
+    }
+
+    public StripedDoubleCounterHandle stripedDoubleUpDownCounter(String tag, String metric, String unit, String description) {
+        return stripedDoubleUpDownCounterMap.computeIfAbsent(tag.concat(metric), name -> {
+            StripedDoubleCounterHandle handle = new StripedDoubleCounterHandle(limiter(tag, metric));
+            provider(tag).meterBuilder(tag).build().upDownCounterBuilder(metric).setUnit(unit).setDescription(description).ofDoubles().buildWithCallback(handle.callback());
+            return handle;
+        });
     }
 
     public void recordCounter(String tag, String metric, String unit, String description, String[] attributes) {
-        longCounterMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.counterBuilder(metric).setUnit(unit).setDescription(description).build();
-        }).add(1, buildAttribute(attributes));
+        recordCounter(tag, metric, unit, description, buildAttribute(attributes));
+    }
+
+    public void recordCounter(String tag, String metric, String unit, String description, Attributes attributes) {
+        counter(tag, metric, unit, description).add(1, attributes);
     }
 
     public void recordCounter(String tag, String metric) {
-        longCounterMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.counterBuilder(metric).build();
-        }).add(1);
+        counter(tag, metric).add(1);
     }
 
     public void recordCounter(String tag, String metric, double value, String unit, String description, String[] attributes) {
-        doubleCounterMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.counterBuilder(metric).setUnit(unit).setDescription(description).ofDoubles().build();
-        }).add(value, buildAttribute(attributes));
+        recordCounter(tag, metric, value, unit, description, buildAttribute(attributes));
+    }
+
+    public void recordCounter(String tag, String metric, double value, String unit, String description, Attributes attributes) {
+        doubleCounter(tag, metric, unit, description).add(value, attributes);
     }
 
     public void recordCounter(String tag, String metric, double value) {
-        doubleCounterMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.counterBuilder(metric).ofDoubles().build();
-        }).add(value);
+        doubleCounter(tag, metric).add(value);
     }
 
     public void recordHistogram(String tag, String metric, double value, String unit, String description, String[] attributes) {
-        doubleHistogramMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.histogramBuilder(metric).setUnit(unit).setDescription(description).build();
-        }).record(value, buildAttribute(attributes));
+        recordHistogram(tag, metric, value, unit, description, buildAttribute(attributes));
+    }
+
+    public void recordHistogram(String tag, String metric, double value, String unit, String description, Attributes attributes) {
+        histogram(tag, metric, unit, description).record(value, attributes);
     }
 
     public void recordHistogram(String tag, String metric, double value) {
-        doubleHistogramMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.histogramBuilder(metric).build();
-        }).record(value);
+        histogram(tag, metric).record(value);
     }
 
     public ObservableDoubleGauge recordGauge(String tag, String metric, Consumer<ObservableDoubleMeasurement> consumer, String unit, String description) {
-        return sdk.meterBuilder(tag).build().gaugeBuilder(metric).setUnit(unit).setDescription(description).buildWithCallback(consumer);
+        return provider(tag).meterBuilder(tag).build().gaugeBuilder(metric).setUnit(unit).setDescription(description).buildWithCallback(consumer);
     }
 
     public ObservableDoubleGauge recordGauge(String tag, String metric, Consumer<ObservableDoubleMeasurement> consumer) {
-        return sdk.meterBuilder(tag).build().gaugeBuilder(metric).buildWithCallback(consumer);
+        return provider(tag).meterBuilder(tag).build().gaugeBuilder(metric).buildWithCallback(consumer);
     }
 
     public void recordUpDownCounter(String tag, String metric, double value, String unit, String description, String[] attributes) {
-        doubleUpDownCounterMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.upDownCounterBuilder(metric).setUnit(unit).setDescription(description).ofDoubles().build();
-        }).add(value, buildAttribute(attributes));
+        recordUpDownCounter(tag, metric, value, unit, description, buildAttribute(attributes));
+    }
+
+    public void recordUpDownCounter(String tag, String metric, double value, String unit, String description, Attributes attributes) {
+        doubleUpDownCounter(tag, metric, unit, description).add(value, attributes);
     }
 
     public void recordUpDownCounter(String tag, String metric, double value) {
-        doubleUpDownCounterMap.computeIfAbsent(tag.concat(metric), name -> {
-            Meter meter = sdk.meterBuilder(tag).build();
-            return meter.upDownCounterBuilder(metric).ofDoubles().build();
-        }).add(value);
+        doubleUpDownCounter(tag, metric).add(value);
+    }
+
+    private CardinalityLimiter limiter(String tag, String metric) {
+        if (cardinalityLimit <= 0) {
+            return null;
+        }
+        CardinalityLimiter limiter = new CardinalityLimiter(tag.concat(".").concat(metric), cardinalityLimit);
+        limiters.add(limiter);
+        return limiter;
+    }
+
+    /**
+     * 同步记录且为 delta 时间性的指标,SDK 在每个周期后释放无记录的序列,其上限随周期重置;
+     * 异步记录模式下 handle 会缓存每个属性组合的 Bound,上限仍需约束缓存大小,因此不重置
+     */
+    private CardinalityLimiter limiter(String tag, String metric, InstrumentType type) {
+        CardinalityLimiter limiter = limiter(tag, metric);
+        if (limiter != null && recorder == null && temporalitySelector != null
+                && temporalitySelector.getAggregationTemporality(type) == AggregationTemporality.DELTA) {
+            resettableLimiters.computeIfAbsent(group(tag), key -> new CopyOnWriteArrayList<>()).add(limiter);
+        }
+        return limiter;
+    }
+
+    private static AsyncRecorder.OverflowPolicy overflowPolicy(String asyncOverflow) {
+        try {
+            return AsyncRecorder.OverflowPolicy.valueOf(asyncOverflow.toUpperCase());
+        } catch (IllegalArgumentException | NullPointerException e) {
+            logger.log(Level.WARNING, "Unknown asyncOverflow " + asyncOverflow + ", using drop");
+            return AsyncRecorder.OverflowPolicy.DROP;
+        }
     }
 
-    private AttributesMap buildAttribute(String[] attributes) {
-        AttributesMap attributesMap = AttributesMap.create(attributes.length, Integer.MAX_VALUE);
-        for (String attr : attributes) {
-            String[] str = attr.split("=");
-            attributesMap.put(AttributeKey.stringKey(str[0]), str[1]);
+    private void resetLimiters(String group) {
+        List<CardinalityLimiter> groupLimiters = resettableLimiters.get(group);
+        if (groupLimiters != null) {
+            for (CardinalityLimiter limiter : groupLimiters) {
+                limiter.reset();
+            }
         }
-        return attributesMap;
+    }
+
+    private Attributes buildAttribute(String[] attributes) {
+        return attributesCache.get(attributes);
+    }
+
+    public AttributesCache getAttributesCache() {
+        return attributesCache;
+    }
+
+    int getInstrumentCount() {
+        return counterMap.size() + doubleCounterMap.size() + histogramMap.size() + upDownCounterMap.size()
+                + doubleUpDownCounterMap.size() + stripedCounterMap.size() + stripedDoubleCounterMap.size()
+                + stripedUpDownCounterMap.size() + stripedDoubleUpDownCounterMap.size();
     }
 }
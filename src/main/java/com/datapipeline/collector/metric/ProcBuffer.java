@@ -0,0 +1,174 @@
+package com.datapipeline.collector.metric;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 读取 procfs 与 cgroupfs 文件的可复用缓冲区,直接在字节上查找与解析数字,不创建 String.
+ *
+ * <p>这些文件每次从偏移 0 读取都会重新生成内容,因此可以保持打开,每次采集 seek 到开头重新读取.非线程安全.
+ */
+final class ProcBuffer {
+
+    private byte[] buffer = new byte[4096];
+    private int length;
+
+    static byte[] label(String label) {
+        return label.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * 打开文件,不存在或不可读时返回 null
+     */
+    static RandomAccessFile open(String path) {
+        try {
+            return new RandomAccessFile(path, "r");
+        } catch (IOException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 关闭文件,忽略 null 与关闭时的异常
+     */
+    static void close(RandomAccessFile file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            file.close();
+        } catch (IOException e) {
+            // ignore
+        }
+    }
+
+    /**
+     * 从开头重新读取整个文件,返回读到的字节数,file 为 null 或读取失败时返回 -1
+     */
+    int read(RandomAccessFile file) throws IOException {
+        length = -1;
+        if (file == null) {
+            return -1;
+        }
+        file.seek(0);
+        int read = 0;
+        while (true) {
+            if (read == buffer.length) {
+                byte[] grown = new byte[buffer.length * 2];
+                System.arraycopy(buffer, 0, grown, 0, read);
+                buffer = grown;
+            }
+            int n = file.read(buffer, read, buffer.length - read);
+            if (n < 0) {
+                length = read;
+                return read;
+            }
+            read += n;
+        }
+    }
+
+    /**
+     * 以 label 开头的行中 label 之后的第一个数字,找不到返回 -1
+     */
+    long value(byte[] label) {
+        return number(find(label));
+    }
+
+    /**
+     * 以 label 开头的行中 key 之后的数字,例如 PSI 文件 some 行的 total=,找不到返回 -1
+     */
+    long value(byte[] label, byte[] key) {
+        int pos = find(label);
+        return pos < 0 ? -1 : number(find(pos, key));
+    }
+
+    /**
+     * 以 label 开头的行中紧跟 label 的位置,找不到返回 -1
+     */
+    int find(byte[] label) {
+        int lineStart = 0;
+        while (lineStart < length) {
+            if (startsWith(lineStart, label)) {
+                return lineStart + label.length;
+            }
+            while (lineStart < length && buffer[lineStart] != '\n') {
+                lineStart++;
+            }
+            lineStart++;
+        }
+        return -1;
+    }
+
+    /**
+     * 从 from 开始在同一行内查找 key,返回紧跟 key 的位置,找不到返回 -1
+     */
+    int find(int from, byte[] key) {
+        if (from < 0) {
+            return -1;
+        }
+        for (int pos = from; pos < length && buffer[pos] != '\n'; pos++) {
+            if (startsWith(pos, key)) {
+                return pos + key.length;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 跳过 pos 处的空白与冒号后解析非负整数,不是数字(例如 cgroup 的 max)时返回 -1
+     */
+    long number(int pos) {
+        if (pos < 0) {
+            return -1;
+        }
+        while (pos < length && (buffer[pos] == ' ' || buffer[pos] == '\t' || buffer[pos] == ':')) {
+            pos++;
+        }
+        if (pos >= length || buffer[pos] < '0' || buffer[pos] > '9') {
+            return -1;
+        }
+        long value = 0;
+        while (pos < length && buffer[pos] >= '0' && buffer[pos] <= '9') {
+            value = value * 10 + (buffer[pos++] - '0');
+        }
+        return value;
+    }
+
+    /**
+     * 跳过 pos 开始的 count 个以空格分隔的字段,返回下一个字段的起始位置,超出内容时返回 -1
+     */
+    int skipFields(int pos, int count) {
+        if (pos < 0) {
+            return -1;
+        }
+        for (int i = 0; i < count && pos < length; i++) {
+            while (pos < length && buffer[pos] != ' ') {
+                pos++;
+            }
+            pos++;
+        }
+        return pos < length ? pos : -1;
+    }
+
+    int lastIndexOf(byte b) {
+        for (int pos = length - 1; pos >= 0; pos--) {
+            if (buffer[pos] == b) {
+                return pos;
+            }
+        }
+        return -1;
+    }
+
+    private boolean startsWith(int pos, byte[] label) {
+        if (pos + label.length > length) {
+            return false;
+        }
+        for (int i = 0; i < label.length; i++) {
+            if (buffer[pos + i] != label[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,371 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 基于 /proc/self 的进程指标:CPU 时间、RSS、上下文切换、磁盘读写字节与打开的文件描述符.
+ *
+ * <p>进程级的文件在注册时打开并保持,每次采集 seek 到开头重新读入复用的缓冲区,直接在字节上解析,不经过 String 与正则.
+ * 非 Linux 系统或 /proc 不可读时退回 OperatingSystemMXBean,只上报进程 CPU 时间与文件描述符.
+ */
+public class ProcFs implements MBeanObservers, AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ProcFs.class.getName());
+
+    private static final String OS_BEAN_HOTSPOT = "com.sun.management.OperatingSystemMXBean";
+    private static final String OS_BEAN_UNIX = "com.sun.management.UnixOperatingSystemMXBean";
+    private static final int AT_CLKTCK = 17;
+    /**
+     * 保持打开的线程 status 文件数上限,避免线程很多时占用过多文件描述符,超出的线程每次采集临时打开
+     */
+    private static final int MAX_TASK_FILES = 128;
+
+    private static final AttributeKey<String> STATE = AttributeKey.stringKey("state");
+    private static final AttributeKey<String> TYPE = AttributeKey.stringKey("type");
+    private static final AttributeKey<String> DIRECTION = AttributeKey.stringKey("direction");
+    private static final Attributes USER = Attributes.of(STATE, "user");
+    private static final Attributes SYSTEM = Attributes.of(STATE, "system");
+    private static final Attributes VOLUNTARY = Attributes.of(TYPE, "voluntary");
+    private static final Attributes INVOLUNTARY = Attributes.of(TYPE, "involuntary");
+    private static final Attributes READ = Attributes.of(DIRECTION, "read");
+    private static final Attributes WRITE = Attributes.of(DIRECTION, "write");
+
+    private static final byte[] VM_RSS = ProcBuffer.label("VmRSS:");
+    private static final byte[] VOLUNTARY_SWITCHES = ProcBuffer.label("voluntary_ctxt_switches:");
+    private static final byte[] INVOLUNTARY_SWITCHES = ProcBuffer.label("nonvoluntary_ctxt_switches:");
+    private static final byte[] READ_BYTES = ProcBuffer.label("read_bytes:");
+    private static final byte[] WRITE_BYTES = ProcBuffer.label("write_bytes:");
+    private static final byte[] MAX_OPEN_FILES = ProcBuffer.label("Max open files");
+
+    private final String procDir;
+    private final ProcBuffer buffer = new ProcBuffer();
+    private RandomAccessFile stat;
+    private RandomAccessFile status;
+    private RandomAccessFile io;
+    private RandomAccessFile limits;
+    private double secondsPerTick;
+    private final Map<String, Task> tasks = new HashMap<>();
+    private int taskFiles;
+    private long scans;
+    private long voluntarySwitches;
+    private long involuntarySwitches;
+
+    public ProcFs() {
+        this("/proc/self");
+    }
+
+    ProcFs(String procDir) {
+        this.procDir = procDir;
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        Meter meter = sdk.meterBuilder(INSTRUMENTATION_NAME).build();
+        if (open()) {
+            registerProcFs(meter);
+        } else {
+            registerMXBean(meter, ManagementFactory.getOperatingSystemMXBean());
+        }
+    }
+
+    private boolean open() {
+        if (!System.getProperty("os.name", "").toLowerCase().startsWith("linux")) {
+            return false;
+        }
+        stat = ProcBuffer.open(procDir + "/stat");
+        status = ProcBuffer.open(procDir + "/status");
+        limits = ProcBuffer.open(procDir + "/limits");
+        // 部分容器禁止读取 io,此时只缺少磁盘读写指标
+        io = ProcBuffer.open(procDir + "/io");
+        if (stat == null || status == null) {
+            logger.log(Level.FINE, "procfs is not readable, falling back to OperatingSystemMXBean");
+            return false;
+        }
+        secondsPerTick = 1.0 / clockTicks();
+        return true;
+    }
+
+    private void registerProcFs(Meter meter) {
+        ObservableDoubleMeasurement cpuTime = meter.counterBuilder("process.cpu.time")
+                .setDescription("CPU time spent by the process, by state")
+                .setUnit("s")
+                .ofDoubles()
+                .buildObserver();
+        ObservableLongMeasurement memory = meter.upDownCounterBuilder("process.memory.usage")
+                .setDescription("Resident set size of the process")
+                .setUnit("By")
+                .buildObserver();
+        ObservableLongMeasurement contextSwitches = meter.counterBuilder("process.context_switches")
+                .setDescription("Number of context switches, by type")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableLongMeasurement disk = meter.counterBuilder("process.disk.io")
+                .setDescription("Bytes read from and written to storage, by direction")
+                .setUnit("By")
+                .buildObserver();
+        ObservableLongMeasurement fds = meter.upDownCounterBuilder("process.open_file_descriptors")
+                .setDescription("Number of open file descriptors")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableLongMeasurement fdLimit = meter.upDownCounterBuilder("process.open_file_descriptors.limit")
+                .setDescription("Soft limit of open file descriptors")
+                .setUnit("{count}")
+                .buildObserver();
+        meter.batchCallback(() -> {
+            synchronized (this) {
+                if (stat == null) {
+                    // 已关闭
+                    return;
+                }
+                try {
+                    record(cpuTime, memory, disk, fdLimit);
+                } catch (IOException e) {
+                    logger.log(Level.FINE, "Failed to read procfs", e);
+                }
+                if (countContextSwitches()) {
+                    contextSwitches.record(voluntarySwitches, VOLUNTARY);
+                    contextSwitches.record(involuntarySwitches, INVOLUNTARY);
+                }
+                long count = countFds();
+                if (count >= 0) {
+                    fds.record(count);
+                }
+            }
+        }, cpuTime, memory, contextSwitches, disk, fds, fdLimit);
+    }
+
+    private void record(ObservableDoubleMeasurement cpuTime, ObservableLongMeasurement memory,
+                        ObservableLongMeasurement disk, ObservableLongMeasurement fdLimit) throws IOException {
+        if (buffer.read(stat) > 0) {
+            // 进程名可能包含空格与括号,从最后一个 ')' 之后开始计数,')' 后是空格与第 3 个字段
+            int utime = buffer.skipFields(buffer.lastIndexOf((byte) ')') + 2, 14 - 3);
+            long user = buffer.number(utime);
+            long system = buffer.number(buffer.skipFields(utime, 1));
+            if (user >= 0 && system >= 0) {
+                cpuTime.record(user * secondsPerTick, USER);
+                cpuTime.record(system * secondsPerTick, SYSTEM);
+            }
+        }
+        if (buffer.read(status) > 0) {
+            long rss = buffer.value(VM_RSS);
+            if (rss >= 0) {
+                memory.record(rss * 1024);
+            }
+        }
+        if (buffer.read(io) > 0) {
+            long read = buffer.value(READ_BYTES);
+            long write = buffer.value(WRITE_BYTES);
+            if (read >= 0 && write >= 0) {
+                disk.record(read, READ);
+                disk.record(write, WRITE);
+            }
+        }
+        if (buffer.read(limits) > 0) {
+            long limit = buffer.value(MAX_OPEN_FILES);
+            if (limit >= 0) {
+                fdLimit.record(limit);
+            }
+        }
+    }
+
+    private void registerMXBean(Meter meter, OperatingSystemMXBean osBean) {
+        Supplier<Double> cpuTime = CPU.methodInvoker(osBean, OS_BEAN_HOTSPOT, "getProcessCpuTime");
+        if (cpuTime != null) {
+            meter.counterBuilder("process.cpu.time")
+                    .setDescription("CPU time spent by the process")
+                    .setUnit("s")
+                    .ofDoubles()
+                    .buildWithCallback(observableMeasurement -> {
+                        Double nanos = cpuTime.get();
+                        if (nanos != null && nanos >= 0) {
+                            observableMeasurement.record(nanos / TimeUnit.SECONDS.toNanos(1));
+                        }
+                    });
+        }
+        Supplier<Double> fds = CPU.methodInvoker(osBean, OS_BEAN_UNIX, "getOpenFileDescriptorCount");
+        if (fds != null) {
+            meter.upDownCounterBuilder("process.open_file_descriptors")
+                    .setDescription("Number of open file descriptors")
+                    .setUnit("{count}")
+                    .buildWithCallback(observableMeasurement -> record(observableMeasurement, fds));
+        }
+        Supplier<Double> fdLimit = CPU.methodInvoker(osBean, OS_BEAN_UNIX, "getMaxFileDescriptorCount");
+        if (fdLimit != null) {
+            meter.upDownCounterBuilder("process.open_file_descriptors.limit")
+                    .setDescription("Soft limit of open file descriptors")
+                    .setUnit("{count}")
+                    .buildWithCallback(observableMeasurement -> record(observableMeasurement, fdLimit));
+        }
+    }
+
+    private static void record(ObservableLongMeasurement observableMeasurement, Supplier<Double> supplier) {
+        Double value = supplier.get();
+        if (value != null && value >= 0) {
+            observableMeasurement.record(value.longValue());
+        }
+    }
+
+    /**
+     * 累加 /proc/self/task 下各线程的上下文切换次数,/proc/self/status 中只有主线程的值.
+     *
+     * <p>按线程记录上一次读到的值,只把增量加到累计值上,线程退出后已计入的次数保留,计数器不会回退;
+     * 两次采集之间创建并退出的线程无法观测到.
+     */
+    private boolean countContextSwitches() {
+        long scan = ++scans;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(procDir, "task"))) {
+            for (Path entry : entries) {
+                String tid = entry.getFileName().toString();
+                Task task = tasks.get(tid);
+                if (task == null) {
+                    task = new Task();
+                    tasks.put(tid, task);
+                }
+                task.scan = scan;
+                readTask(tid, task);
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to list " + procDir + "/task", e);
+            return false;
+        }
+        Iterator<Task> iterator = tasks.values().iterator();
+        while (iterator.hasNext()) {
+            Task task = iterator.next();
+            if (task.scan != scan) {
+                closeTask(task);
+                iterator.remove();
+            }
+        }
+        return true;
+    }
+
+    private void readTask(String tid, Task task) {
+        RandomAccessFile file = task.status;
+        if (file == null) {
+            file = ProcBuffer.open(procDir + "/task/" + tid + "/status");
+            if (file == null) {
+                // 线程已退出
+                return;
+            }
+            if (taskFiles < MAX_TASK_FILES) {
+                task.status = file;
+                taskFiles++;
+            }
+        }
+        try {
+            if (buffer.read(file) > 0) {
+                long voluntary = buffer.value(VOLUNTARY_SWITCHES);
+                long involuntary = buffer.value(INVOLUNTARY_SWITCHES);
+                if (voluntary >= 0 && involuntary >= 0) {
+                    // 小于上次的值说明线程号已被新线程复用
+                    voluntarySwitches += voluntary >= task.voluntary ? voluntary - task.voluntary : voluntary;
+                    involuntarySwitches += involuntary >= task.involuntary ? involuntary - task.involuntary : involuntary;
+                    task.voluntary = voluntary;
+                    task.involuntary = involuntary;
+                }
+            }
+        } catch (IOException e) {
+            // 线程已退出,关闭保持的文件,线程号复用时重新打开
+            closeTask(task);
+        } finally {
+            if (file != task.status) {
+                ProcBuffer.close(file);
+            }
+        }
+    }
+
+    private void closeTask(Task task) {
+        if (task.status != null) {
+            ProcBuffer.close(task.status);
+            task.status = null;
+            taskFiles--;
+        }
+    }
+
+    /**
+     * 关闭保持打开的 proc 文件,之后的采集不再上报 procfs 指标
+     */
+    @Override
+    public synchronized void close() {
+        ProcBuffer.close(stat);
+        ProcBuffer.close(status);
+        ProcBuffer.close(io);
+        ProcBuffer.close(limits);
+        stat = null;
+        status = null;
+        io = null;
+        limits = null;
+        for (Task task : tasks.values()) {
+            closeTask(task);
+        }
+        tasks.clear();
+    }
+
+    private long countFds() {
+        long count = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(Paths.get(procDir, "fd"))) {
+            for (Path ignored : entries) {
+                count++;
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to list " + procDir + "/fd", e);
+            return -1;
+        }
+        // 减去遍历目录本身占用的描述符
+        return Math.max(0, count - 1);
+    }
+
+    /**
+     * 从 auxv 读取 AT_CLKTCK,即 stat 中 CPU 时间的单位,读取失败时使用 Linux 的默认值 100
+     */
+    private long clockTicks() {
+        File auxv = new File(procDir, "auxv");
+        try {
+            ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(auxv.toPath())).order(ByteOrder.nativeOrder());
+            boolean is64 = System.getProperty("os.arch", "").contains("64");
+            while (entries.remaining() >= (is64 ? 16 : 8)) {
+                long type = is64 ? entries.getLong() : entries.getInt();
+                long value = is64 ? entries.getLong() : entries.getInt();
+                if (type == AT_CLKTCK && value > 0) {
+                    return value;
+                }
+                if (type == 0) {
+                    break;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.log(Level.FINE, "Failed to read " + auxv, e);
+        }
+        return 100;
+    }
+
+    private static final class Task {
+        private RandomAccessFile status;
+        private long voluntary;
+        private long involuntary;
+        private long scan;
+    }
+}
@@ -0,0 +1,49 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+/**
+ * MetricReporter 自身的指标:已创建的指标数及属性缓存的命中、未命中与淘汰次数
+ */
+public class ReporterObservers implements MBeanObservers {
+
+    private static final AttributeKey<String> RESULT_KEY = AttributeKey.stringKey("result");
+    private static final Attributes HIT = Attributes.of(RESULT_KEY, "hit");
+    private static final Attributes MISS = Attributes.of(RESULT_KEY, "miss");
+
+    private final MetricReporter reporter;
+
+    public ReporterObservers(MetricReporter reporter) {
+        this.reporter = reporter;
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        Meter meter = sdk.meterBuilder(SDK_INSTRUMENTATION_NAME).build();
+        meter
+                .upDownCounterBuilder("collector.sdk.instruments")
+                .setDescription("Number of instruments created through MetricReporter")
+                .setUnit("{instruments}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(reporter.getInstrumentCount()));
+
+        meter
+                .counterBuilder("collector.sdk.attributes.cache.lookups")
+                .setDescription("Number of attribute cache lookups by result")
+                .setUnit("{lookups}")
+                .buildWithCallback(
+                        observableMeasurement -> {
+                            AttributesCache cache = reporter.getAttributesCache();
+                            observableMeasurement.record(cache.getHits(), HIT);
+                            observableMeasurement.record(cache.getMisses(), MISS);
+                        });
+
+        meter
+                .counterBuilder("collector.sdk.attributes.cache.evictions")
+                .setDescription("Number of attribute cache entries replaced by a newer entry")
+                .setUnit("{entries}")
+                .buildWithCallback(observableMeasurement -> observableMeasurement.record(reporter.getAttributesCache().getEvictions()));
+    }
+}
@@ -0,0 +1,73 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.Consumer;
+
+/**
+ * 分段本地累加的 double 型计数器句柄,用于计数器及可增减计数器.
+ *
+ * <p>每组属性对应一个 {@link DoubleAdder},记录只在本地分段累加,不调用SDK,也不会在多核间争用同一缓存行;
+ * 采集时由异步指标回调把每组属性的累计值一次性汇入SDK,每个采集周期每组属性只产生一次SDK调用.
+ * 通过 {@link MetricReporter#stripedDoubleCounter} 获取.
+ */
+public final class StripedDoubleCounterHandle {
+
+    private final Map<Attributes, Bound> bounds = new ConcurrentHashMap<>();
+    private final CardinalityLimiter limiter;
+
+    StripedDoubleCounterHandle(CardinalityLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public void add(double value) {
+        bind(Attributes.empty()).add(value);
+    }
+
+    public void add(double value, Attributes attributes) {
+        bind(attributes).add(value);
+    }
+
+    /**
+     * 绑定一组固定属性,同一组属性总是返回同一个累加器.超过属性组合上限时绑定到溢出序列
+     */
+    public Bound bind(Attributes attributes) {
+        if (limiter != null) {
+            attributes = limiter.apply(attributes);
+        }
+        Bound bound = bounds.get(attributes);
+        if (bound == null) {
+            bound = bounds.computeIfAbsent(attributes, Bound::new);
+        }
+        return bound;
+    }
+
+    Consumer<ObservableDoubleMeasurement> callback() {
+        return measurement -> {
+            for (Bound bound : bounds.values()) {
+                measurement.record(bound.adder.sum(), bound.attributes);
+            }
+        };
+    }
+
+    public static final class Bound {
+        private final DoubleAdder adder = new DoubleAdder();
+        private final Attributes attributes;
+
+        private Bound(Attributes attributes) {
+            this.attributes = attributes;
+        }
+
+        public void add(double value) {
+            adder.add(value);
+        }
+
+        public Attributes getAttributes() {
+            return attributes;
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.api.metrics.ObservableDoubleMeasurement;
+import io.opentelemetry.api.metrics.ObservableLongMeasurement;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 线程详情:各状态线程数、阻塞与等待的累计次数和时间、死锁线程数,以及按 CPU 使用率排序的前 N 个线程池.
+ *
+ * <p>每个周期按批调用 getThreadInfo,超出时间预算后停止,下个周期从中断处继续,发生截断的周期数通过
+ * process.runtime.jvm.threads.scan.truncated 上报.每个线程最近一次扫描到的状态、阻塞与等待次数和时间缓存在内存中,
+ * 上报值由缓存得出,截断的周期里未扫描到的线程沿用上次的值;阻塞与等待按线程的增量累加,线程退出后已计入的部分保留,计数不会回退.
+ * 线程名中的数字归一化为 N 作为线程池名,例如 pool-3-thread-7 归为 pool-N-thread-N.
+ */
+public class ThreadDetails implements MBeanObservers {
+    private static final Logger logger = Logger.getLogger(ThreadDetails.class.getName());
+
+    private static final int BATCH_SIZE = 256;
+    private static final int MAX_POOLS = 256;
+    private static final String OTHER_POOL = "other";
+
+    private static final AttributeKey<String> STATE = AttributeKey.stringKey("state");
+    private static final AttributeKey<String> POOL = AttributeKey.stringKey("pool");
+    private static final Thread.State[] STATES = Thread.State.values();
+    private static final Attributes[] STATE_ATTRIBUTES = new Attributes[STATES.length];
+
+    static {
+        for (Thread.State state : STATES) {
+            STATE_ATTRIBUTES[state.ordinal()] = Attributes.of(STATE, state.name().toLowerCase());
+        }
+    }
+
+    private final ThreadMXBean threadBean;
+    private final boolean contentionMonitoring;
+    private final int topN;
+    private final long budgetNanos;
+    private final int[] states = new int[STATES.length];
+    /**
+     * 线程 id 到最近一次扫描的结果,线程退出后移除
+     */
+    private final Map<Long, ThreadEntry> threads = new HashMap<>();
+    /**
+     * 线程池名到本周期 CPU 使用率之和,数组复用,每个周期清零
+     */
+    private final Map<String, double[]> poolUsage = new HashMap<>();
+    private final Map<String, Attributes> poolAttributes = new HashMap<>();
+    private boolean cpuTime;
+    private boolean contentionTimes;
+    private int cursor;
+    private long scan;
+    private long truncated;
+    private long blockedCount;
+    private long blockedMillis;
+    private long waitedCount;
+    private long waitedMillis;
+
+    public ThreadDetails(Config config) {
+        this(ManagementFactory.getThreadMXBean(), config.isThreadContentionMonitoring(), config.getThreadTopN(),
+                config.getThreadScanBudget());
+    }
+
+    ThreadDetails(ThreadMXBean threadBean, boolean contentionMonitoring, int topN, long budgetMillis) {
+        this.threadBean = threadBean;
+        this.contentionMonitoring = contentionMonitoring;
+        this.topN = topN;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budgetMillis);
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        try {
+            if (contentionMonitoring && threadBean.isThreadContentionMonitoringSupported()) {
+                threadBean.setThreadContentionMonitoringEnabled(true);
+            }
+            contentionTimes = threadBean.isThreadContentionMonitoringSupported()
+                    && threadBean.isThreadContentionMonitoringEnabled();
+            cpuTime = topN > 0 && threadBean.isThreadCpuTimeSupported();
+            if (cpuTime && !threadBean.isThreadCpuTimeEnabled()) {
+                threadBean.setThreadCpuTimeEnabled(true);
+            }
+        } catch (UnsupportedOperationException | SecurityException e) {
+            logger.log(Level.WARNING, "Failed to enable thread contention or cpu time monitoring", e);
+        }
+        Meter meter = sdk.meterBuilder(INSTRUMENTATION_NAME).build();
+        ObservableLongMeasurement stateCount = meter.upDownCounterBuilder("process.runtime.jvm.threads.states")
+                .setDescription("Number of threads by state")
+                .setUnit("{thread}")
+                .buildObserver();
+        ObservableLongMeasurement blockedCount = meter.counterBuilder("process.runtime.jvm.threads.blocked.count")
+                .setDescription("Times threads blocked to enter or reenter a monitor")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableDoubleMeasurement blockedTime = meter.counterBuilder("process.runtime.jvm.threads.blocked.time")
+                .setDescription("Time threads spent blocked, requires contention monitoring")
+                .setUnit("s")
+                .ofDoubles()
+                .buildObserver();
+        ObservableLongMeasurement waitedCount = meter.counterBuilder("process.runtime.jvm.threads.waited.count")
+                .setDescription("Times threads waited for notification")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableDoubleMeasurement waitedTime = meter.counterBuilder("process.runtime.jvm.threads.waited.time")
+                .setDescription("Time threads spent waiting, requires contention monitoring")
+                .setUnit("s")
+                .ofDoubles()
+                .buildObserver();
+        ObservableLongMeasurement deadlocked = meter.upDownCounterBuilder("process.runtime.jvm.threads.deadlocked")
+                .setDescription("Number of threads in a deadlock")
+                .setUnit("{thread}")
+                .buildObserver();
+        ObservableLongMeasurement truncatedScans = meter.counterBuilder("process.runtime.jvm.threads.scan.truncated")
+                .setDescription("Collections in which the thread scan stopped at the time budget")
+                .setUnit("{count}")
+                .buildObserver();
+        ObservableDoubleMeasurement poolCpu = meter.gaugeBuilder("process.runtime.jvm.threads.cpu.utilization")
+                .setDescription("CPU utilization of the busiest thread pools since the previous collection")
+                .setUnit("1")
+                .buildObserver();
+        meter.batchCallback(() -> {
+            synchronized (this) {
+                long deadline = System.nanoTime() + budgetNanos;
+                scan(deadline);
+                for (int i = 0; i < STATES.length; i++) {
+                    stateCount.record(states[i], STATE_ATTRIBUTES[i]);
+                }
+                blockedCount.record(this.blockedCount);
+                waitedCount.record(this.waitedCount);
+                if (contentionTimes) {
+                    blockedTime.record(blockedMillis / 1e3);
+                    waitedTime.record(waitedMillis / 1e3);
+                }
+                // 死锁检测需要遍历所有线程的锁,超出预算时留到下个周期
+                if (System.nanoTime() < deadline) {
+                    long[] ids = threadBean.isSynchronizerUsageSupported()
+                            ? threadBean.findDeadlockedThreads() : threadBean.findMonitorDeadlockedThreads();
+                    deadlocked.record(ids == null ? 0 : ids.length);
+                }
+                truncatedScans.record(truncated);
+                if (cpuTime) {
+                    recordTopPools(poolCpu);
+                }
+            }
+        }, stateCount, blockedCount, blockedTime, waitedCount, waitedTime, deadlocked, truncatedScans, poolCpu);
+    }
+
+    private void scan(long deadline) {
+        for (double[] usage : poolUsage.values()) {
+            usage[0] = 0;
+        }
+        long[] ids = threadBean.getAllThreadIds();
+        scan++;
+        // getAllThreadIds 很轻量,用它标记存活线程,截断时没有扫描到的线程也不会被当作已退出
+        for (long id : ids) {
+            ThreadEntry entry = threads.get(id);
+            if (entry != null) {
+                entry.alive = scan;
+            }
+        }
+        int start = ids.length == 0 ? 0 : cursor % ids.length;
+        int scanned = 0;
+        while (scanned < ids.length) {
+            if (scanned > 0 && System.nanoTime() > deadline) {
+                truncated++;
+                break;
+            }
+            long[] batch = new long[Math.min(BATCH_SIZE, ids.length - scanned)];
+            for (int i = 0; i < batch.length; i++) {
+                batch[i] = ids[(start + scanned + i) % ids.length];
+            }
+            long now = System.nanoTime();
+            for (ThreadInfo info : threadBean.getThreadInfo(batch, 0)) {
+                if (info != null) {
+                    update(info, now);
+                }
+            }
+            scanned += batch.length;
+        }
+        cursor = start + scanned;
+        threads.values().removeIf(entry -> entry.alive != scan);
+        for (int i = 0; i < states.length; i++) {
+            states[i] = 0;
+        }
+        for (ThreadEntry entry : threads.values()) {
+            states[entry.state.ordinal()]++;
+        }
+    }
+
+    private void update(ThreadInfo info, long now) {
+        ThreadEntry entry = threads.get(info.getThreadId());
+        if (entry == null) {
+            entry = new ThreadEntry();
+            threads.put(info.getThreadId(), entry);
+        }
+        entry.alive = scan;
+        entry.state = info.getThreadState();
+        blockedCount += delta(info.getBlockedCount(), entry.blockedCount);
+        waitedCount += delta(info.getWaitedCount(), entry.waitedCount);
+        entry.blockedCount = info.getBlockedCount();
+        entry.waitedCount = info.getWaitedCount();
+        // 未开启竞争监控时为 -1
+        if (info.getBlockedTime() >= 0) {
+            blockedMillis += delta(info.getBlockedTime(), entry.blockedMillis);
+            entry.blockedMillis = info.getBlockedTime();
+        }
+        if (info.getWaitedTime() >= 0) {
+            waitedMillis += delta(info.getWaitedTime(), entry.waitedMillis);
+            entry.waitedMillis = info.getWaitedTime();
+        }
+        if (cpuTime) {
+            sample(info, entry, now);
+        }
+    }
+
+    /**
+     * 比上次小说明计数被重置,例如重新开启竞争监控,此时全部计为增量
+     */
+    private static long delta(long current, long last) {
+        return current >= last ? current - last : current;
+    }
+
+    /**
+     * 与上一次 CPU 时间采样比较,计入线程池的使用率;首次扫描或线程名变化时只记录采样
+     */
+    private void sample(ThreadInfo info, ThreadEntry entry, long now) {
+        long cpu = threadBean.getThreadCpuTime(info.getThreadId());
+        if (cpu < 0) {
+            return;
+        }
+        if (entry.name == null || !entry.name.equals(info.getThreadName())) {
+            entry.name = info.getThreadName();
+            entry.pool = normalize(entry.name);
+        } else if (now > entry.nanos) {
+            double[] usage = poolUsage.get(entry.pool);
+            if (usage == null) {
+                String pool = poolUsage.size() < MAX_POOLS ? entry.pool : OTHER_POOL;
+                usage = poolUsage.computeIfAbsent(pool, key -> new double[1]);
+            }
+            usage[0] += (double) (cpu - entry.cpu) / (now - entry.nanos);
+        }
+        entry.cpu = cpu;
+        entry.nanos = now;
+    }
+
+    private void recordTopPools(ObservableDoubleMeasurement poolCpu) {
+        List<Map.Entry<String, double[]>> pools = new ArrayList<>();
+        for (Map.Entry<String, double[]> entry : poolUsage.entrySet()) {
+            if (entry.getValue()[0] > 0) {
+                pools.add(entry);
+            }
+        }
+        pools.sort((a, b) -> Double.compare(b.getValue()[0], a.getValue()[0]));
+        for (int i = 0; i < Math.min(topN, pools.size()); i++) {
+            Map.Entry<String, double[]> pool = pools.get(i);
+            poolCpu.record(pool.getValue()[0],
+                    poolAttributes.computeIfAbsent(pool.getKey(), key -> Attributes.of(POOL, key)));
+        }
+    }
+
+    /**
+     * 把线程名中的连续数字替换为 N
+     */
+    static String normalize(String name) {
+        StringBuilder normalized = null;
+        int length = name.length();
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (normalized == null) {
+                    normalized = new StringBuilder(length).append(name, 0, i);
+                }
+                normalized.append('N');
+                while (i + 1 < length && name.charAt(i + 1) >= '0' && name.charAt(i + 1) <= '9') {
+                    i++;
+                }
+            } else if (normalized != null) {
+                normalized.append(c);
+            }
+        }
+        return normalized == null ? name : normalized.toString();
+    }
+
+    private static final class ThreadEntry {
+        private Thread.State state;
+        private long blockedCount;
+        private long blockedMillis;
+        private long waitedCount;
+        private long waitedMillis;
+        private long alive;
+        private String name;
+        private String pool;
+        private long cpu;
+        private long nanos;
+    }
+}
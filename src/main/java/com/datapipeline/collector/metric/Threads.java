@@ -11,6 +11,8 @@ import java.lang.management.ThreadMXBean;
 public class Threads implements MBeanObservers {
 
     final AttributeKey<Boolean> DAEMON = AttributeKey.booleanKey("daemon");
+    private final Attributes daemonAttributes = Attributes.of(DAEMON, true);
+    private final Attributes nonDaemonAttributes = Attributes.of(DAEMON, false);
 
     @Override
     public void registerObservers(SdkMeterProvider sdk) {
@@ -24,12 +26,9 @@ public class Threads implements MBeanObservers {
                 .setUnit("1")
                 .buildWithCallback(
                         observableMeasurement -> {
-                            observableMeasurement.record(
-                                    threadBean.getDaemonThreadCount(),
-                                    Attributes.builder().put(DAEMON, true).build());
-                            observableMeasurement.record(
-                                    threadBean.getThreadCount() - threadBean.getDaemonThreadCount(),
-                                    Attributes.builder().put(DAEMON, false).build());
+                            int daemonCount = threadBean.getDaemonThreadCount();
+                            observableMeasurement.record(daemonCount, daemonAttributes);
+                            observableMeasurement.record(threadBean.getThreadCount() - daemonCount, nonDaemonAttributes);
                         });
     }
 }
@@ -0,0 +1,75 @@
+package com.datapipeline.collector.metric;
+
+import com.datapipeline.collector.recording.AsyncRecorder;
+import com.datapipeline.collector.recording.RecordTarget;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.LongUpDownCounter;
+
+/**
+ * long 型可增减计数器句柄,通过 {@link MetricReporter#upDownCounter} 获取,可缓存复用
+ */
+public final class UpDownCounterHandle extends InstrumentHandle<UpDownCounterHandle.Bound> {
+
+    private final LongUpDownCounter instrument;
+
+    UpDownCounterHandle(LongUpDownCounter instrument, AsyncRecorder recorder, CardinalityLimiter limiter) {
+        super(recorder, limiter);
+        this.instrument = instrument;
+    }
+
+    public void add(long value) {
+        if (recorder != null) {
+            bind(Attributes.empty()).add(value);
+        } else {
+            instrument.add(value);
+        }
+    }
+
+    public void add(long value, Attributes attributes) {
+        if (recorder != null) {
+            bind(attributes).add(value);
+        } else {
+            instrument.add(value, limit(attributes));
+        }
+    }
+
+    @Override
+    Bound newBound(Attributes attributes) {
+        return new Bound(instrument, attributes, recorder);
+    }
+
+    public static final class Bound implements RecordTarget {
+        private final LongUpDownCounter instrument;
+        private final Attributes attributes;
+        private final AsyncRecorder recorder;
+        private final int id;
+
+        private Bound(LongUpDownCounter instrument, Attributes attributes, AsyncRecorder recorder) {
+            this.instrument = instrument;
+            this.attributes = attributes;
+            this.recorder = recorder;
+            this.id = recorder == null ? -1 : recorder.register(this);
+        }
+
+        public void add(long value) {
+            if (recorder != null) {
+                recorder.record(id, value);
+            } else {
+                instrument.add(value, attributes);
+            }
+        }
+
+        public void increment() {
+            add(1);
+        }
+
+        public Attributes getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public void apply(long value) {
+            instrument.add(value, attributes);
+        }
+    }
+}
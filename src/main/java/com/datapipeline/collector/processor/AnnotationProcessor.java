@@ -16,13 +16,14 @@ import com.sun.tools.javac.util.Names;
 import javax.annotation.processing.*;
 import javax.lang.model.element.*;
 import javax.lang.model.type.TypeKind;
+import javax.tools.Diagnostic;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 @SupportedAnnotationTypes(
         {
                 "com.datapipeline.collector.annotation.MCounter",
-                "com.datapipeline.collector.annotation.MHistogram",
-                "org.springframework.beans.factory.annotation.Autowired"
+                "com.datapipeline.collector.annotation.MHistogram"
         }
 )
 //@AutoService(Processor.class)
@@ -41,85 +42,61 @@ public class AnnotationProcessor extends AbstractProcessor {
 
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
-        Set<String> injectBean = new HashSet<>();
-        Map<String, String> map = new HashMap<>();
-        java.util.List<? extends TypeElement> sortAnnotations = new ArrayList(annotations);
-        sortAnnotations.sort((Comparator<TypeElement>) (o1, o2) -> {
-            int v = Character.compare(o1.getSimpleName().toString().charAt(0), o2.getSimpleName().toString().charAt(0));
-            if (v == 0) {
-                v = Character.compare(o2.getSimpleName().toString().charAt(1), o1.getSimpleName().toString().charAt(1));
-            }
-            return v;
-        });
-        for (TypeElement annotation : sortAnnotations) {
+        Map<String, Integer> fieldIndex = new HashMap<>();
+        for (TypeElement annotation : annotations) {
             Set<? extends Element> elements = roundEnv.getElementsAnnotatedWith(annotation);
-            String varName = "reporter";
             for (Element element : elements) {
                 try {
-                    if (element.getKind() == ElementKind.FIELD) {
-                        VariableElement variableElement = (VariableElement) element;
-                        varName = variableElement.getSimpleName().toString();
-                        String className = variableElement.getEnclosingElement().toString();
-                        map.put(className, varName);
-                        if (annotation.getSimpleName().toString().equals("Autowired")) {
-                            Element classElement = variableElement.getEnclosingElement();
-                            for (Element enclosedElement : classElement.getEnclosedElements()) {
-                                if ("com.datapipeline.collector.metric.MetricReporter".equals(enclosedElement.asType().toString())) {
-                                    injectBean.add(className);
-                                }
-                            }
-                        }
-                    } else if (element.getKind() == ElementKind.METHOD) {
-                        ExecutableElement methodElement = (ExecutableElement) element;
-                        String className = methodElement.getEnclosingElement().toString();
-                        map.putIfAbsent(className, varName);
-                        Statement statement = new Statement();
-                        if (annotation.getSimpleName().toString().equals("MCounter")) {
-                            JCTree.JCMethodDecl methodDecl = javacTrees.getTree(methodElement);
-                            List<JCTree.JCStatement> bodyStatements = methodDecl.body.getStatements();
-                            MCounter mCounter = methodElement.getAnnotation(MCounter.class);
-                            if (mCounter.tag().length() != 0 && mCounter.metric().length() != 0) {
-                                statement.setType("MCounter");
-                                statement.setVarName(map.get(className));
-                                statement.setComponent(mCounter.tag());
-                                statement.setKey(mCounter.metric());
-                                statement.setUnit(mCounter.unit());
-                                statement.setDescription(mCounter.description());
-                                statement.setAttributes(mCounter.attribute());
-                                JCTree.JCExpressionStatement counterStatement = recordCounter(statement);
-                                TypeKind typeKind = methodElement.getReturnType().getKind();
-                                List<JCTree.JCStatement> newStatements = bodyStatements.append(counterStatement);
-                                if (typeKind != TypeKind.VOID) {
-                                    newStatements = processReturn(bodyStatements, treeMaker, statement);
-                                }
-                                methodDecl.body = treeMaker.Block(0, newStatements);
+                    if (element.getKind() != ElementKind.METHOD) {
+                        continue;
+                    }
+                    ExecutableElement methodElement = (ExecutableElement) element;
+                    String className = methodElement.getEnclosingElement().toString();
+                    Statement statement = new Statement();
+                    if (annotation.getSimpleName().toString().equals("MCounter")) {
+                        JCTree.JCMethodDecl methodDecl = javacTrees.getTree(methodElement);
+                        List<JCTree.JCStatement> bodyStatements = methodDecl.body.getStatements();
+                        MCounter mCounter = methodElement.getAnnotation(MCounter.class);
+                        if (mCounter.tag().length() != 0 && mCounter.metric().length() != 0) {
+                            if (!checkAttributes(methodElement, mCounter.attribute())) {
+                                continue;
                             }
-                        } else if (annotation.getSimpleName().toString().equals("MHistogram")) {
-                            JCTree.JCMethodDecl methodDecl = javacTrees.getTree(methodElement);
-                            List<JCTree.JCStatement> bodyStatements = methodDecl.body.getStatements();
-                            MHistogram mHistogram = methodElement.getAnnotation(MHistogram.class);
-                            if (mHistogram.tag().length() != 0 && mHistogram.metric().length() != 0) {
-                                statement.setType("MHistogram");
-                                statement.setVarName(map.get(className));
-                                statement.setComponent(mHistogram.tag());
-                                statement.setKey(mHistogram.metric());
-                                statement.setUnit(mHistogram.unit());
-                                statement.setDescription(mHistogram.description());
-                                statement.setAttributes(mHistogram.attribute());
-                                JCTree.JCExpressionStatement histogram = recordHistogram(statement);
-                                TypeKind typeKind = methodElement.getReturnType().getKind();
-                                List<JCTree.JCStatement> newStatements = bodyStatements.prepend(JCTreeUtil.beginTime(treeMaker, names)).append(JCTreeUtil.durationTime(treeMaker, names)).append(histogram);
-                                if (typeKind != TypeKind.VOID) {
-                                    newStatements = processReturn(bodyStatements, treeMaker, statement).prepend(JCTreeUtil.beginTime(treeMaker, names));
-                                }
-                                methodDecl.body = treeMaker.Block(0, newStatements);
+                            statement.setType("MCounter");
+                            statement.setComponent(mCounter.tag());
+                            statement.setKey(mCounter.metric());
+                            statement.setUnit(mCounter.unit());
+                            statement.setDescription(mCounter.description());
+                            statement.setAttributes(mCounter.attribute());
+                            statement.setVarName(injectInstrument(element, className, fieldIndex, statement));
+                            JCTree.JCExpressionStatement counterStatement = recordCounter(statement);
+                            TypeKind typeKind = methodElement.getReturnType().getKind();
+                            List<JCTree.JCStatement> newStatements = bodyStatements.append(counterStatement);
+                            if (typeKind != TypeKind.VOID) {
+                                newStatements = processReturn(bodyStatements, treeMaker, statement);
                             }
+                            methodDecl.body = treeMaker.Block(0, newStatements);
                         }
-                        if (!injectBean.contains(className)) {
-                            JCTreeUtil.injectBeanMetricReporter(treeMaker, names, element, javacTrees);
-                            injectBean.add(className);
+                    } else if (annotation.getSimpleName().toString().equals("MHistogram")) {
+                        JCTree.JCMethodDecl methodDecl = javacTrees.getTree(methodElement);
+                        List<JCTree.JCStatement> bodyStatements = methodDecl.body.getStatements();
+                        MHistogram mHistogram = methodElement.getAnnotation(MHistogram.class);
+                        if (mHistogram.tag().length() != 0 && mHistogram.metric().length() != 0) {
+                            if (!checkAttributes(methodElement, mHistogram.attribute())) {
+                                continue;
+                            }
+                            statement.setType("MHistogram");
+                            statement.setComponent(mHistogram.tag());
+                            statement.setKey(mHistogram.metric());
+                            statement.setUnit(mHistogram.unit().length() != 0 ? mHistogram.unit() : timeUnitSymbol(mHistogram.timeUnit()));
+                            statement.setDescription(mHistogram.description());
+                            statement.setAttributes(mHistogram.attribute());
+                            statement.setTimeDivisor(mHistogram.timeUnit().toNanos(1));
+                            statement.setOutcome(mHistogram.outcome());
+                            statement.setVarName(injectInstrument(element, className, fieldIndex, statement));
+                            List<JCTree.JCStatement> newStatements = JCTreeUtil.wrapTryFinally(treeMaker, names, bodyStatements, recordHistogram(statement), statement.isOutcome())
+                                    .prepend(JCTreeUtil.beginTime(treeMaker, names));
+                            methodDecl.body = treeMaker.Block(0, newStatements);
                         }
-
                     }
                 } catch (Throwable e) {
                     e.printStackTrace();
@@ -129,25 +106,79 @@ public class AnnotationProcessor extends AbstractProcessor {
         return true;
     }
 
+    /**
+     * 属性必须是 "key=value" 形式,编译期即报错而不是在运行时每次调用再解析
+     */
+    private boolean checkAttributes(Element element, String[] attributes) {
+        String invalid = JCTreeUtil.invalidAttribute(attributes);
+        if (invalid != null) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "attribute must be in key=value form: " + invalid, element);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 为注解方法生成一个静态指标字段,属性在编译期构造,指标在首次记录时通过 GlobalMetricReporter 解析并绑定,
+     * 生成的统计代码直接调用该字段,不依赖注入的 MetricReporter,也不再有每次调用的查找与属性解析
+     */
+    private String injectInstrument(Element element, String className, Map<String, Integer> fieldIndex, Statement statement) {
+        int index = fieldIndex.merge(className, 1, Integer::sum) - 1;
+        boolean counter = "MCounter".equals(statement.getType());
+        String fieldName = (counter ? "$metricCounter" : "$metricHistogram") + index;
+        JCTree.JCMethodInvocation init = treeMaker.Apply(
+                com.sun.tools.javac.util.List.nil(),
+                JCTreeUtil.makeTypeReference(treeMaker, names, counter
+                        ? "com.datapipeline.collector.metric.GlobalMetricReporter.counter"
+                        : "com.datapipeline.collector.metric.GlobalMetricReporter.histogram"),
+                counter
+                        ? com.sun.tools.javac.util.List.of(
+                        treeMaker.Literal(statement.getComponent()), treeMaker.Literal(statement.getKey()), treeMaker.Literal(statement.getUnit()), treeMaker.Literal(statement.getDescription()), JCTreeUtil.newAttributes(treeMaker, names, statement.getAttributes()))
+                        : com.sun.tools.javac.util.List.of(
+                        treeMaker.Literal(statement.getComponent()), treeMaker.Literal(statement.getKey()), treeMaker.Literal(statement.getUnit()), treeMaker.Literal(statement.getDescription()), JCTreeUtil.newAttributes(treeMaker, names, statement.getAttributes()), treeMaker.Literal(statement.isOutcome()))
+        );
+        JCTreeUtil.injectConstantField(treeMaker, names, element, javacTrees, fieldName, counter
+                ? "com.datapipeline.collector.metric.LazyBoundCounter"
+                : "com.datapipeline.collector.metric.LazyBoundHistogram", init);
+        return fieldName;
+    }
 
     private JCTree.JCExpressionStatement recordHistogram(Statement statement) {
+        JCTree.JCExpression duration = JCTreeUtil.elapsedTime(treeMaker, names, statement.getTimeDivisor());
         JCTree.JCMethodInvocation invocation = treeMaker.Apply(
                 com.sun.tools.javac.util.List.nil(),
-                JCTreeUtil.makeTypeReference(treeMaker, names, statement.getVarName().concat(".recordHistogram")),
-                com.sun.tools.javac.util.List.of(
-                        treeMaker.Literal(statement.getComponent()), treeMaker.Literal(statement.getKey()), treeMaker.Ident(names.fromString("duration")), treeMaker.Literal(statement.getUnit()), treeMaker.Literal(statement.getDescription()), JCTreeUtil.newArray(treeMaker, names, statement.getAttributes())
-                )
+                JCTreeUtil.makeTypeReference(treeMaker, names, statement.getVarName().concat(".record")),
+                statement.isOutcome()
+                        ? com.sun.tools.javac.util.List.of(duration, treeMaker.Ident(names.fromString(JCTreeUtil.ERROR)))
+                        : com.sun.tools.javac.util.List.of(duration)
         );
         return treeMaker.Exec(invocation);
     }
 
+    private String timeUnitSymbol(TimeUnit timeUnit) {
+        switch (timeUnit) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "us";
+            case MILLISECONDS:
+                return "ms";
+            case SECONDS:
+                return "s";
+            case MINUTES:
+                return "min";
+            case HOURS:
+                return "h";
+            default:
+                return "d";
+        }
+    }
+
     private JCTree.JCExpressionStatement recordCounter(Statement statement) {
         JCTree.JCMethodInvocation invocation = treeMaker.Apply(
                 com.sun.tools.javac.util.List.nil(),
-                JCTreeUtil.makeTypeReference(treeMaker, names, statement.getVarName().concat(".recordCounter")),
-                com.sun.tools.javac.util.List.of(
-                        treeMaker.Literal(statement.getComponent()), treeMaker.Literal(statement.getKey()), treeMaker.Literal(statement.getUnit()), treeMaker.Literal(statement.getDescription()), JCTreeUtil.newArray(treeMaker, names, statement.getAttributes())
-                )
+                JCTreeUtil.makeTypeReference(treeMaker, names, statement.getVarName().concat(".increment")),
+                com.sun.tools.javac.util.List.nil()
         );
         return treeMaker.Exec(invocation);
     }
@@ -158,11 +189,7 @@ public class AnnotationProcessor extends AbstractProcessor {
             // 处理 return 语句
             if (statement.getKind() == Tree.Kind.RETURN) {
                 // 在 return 语句前插入一行代码
-                if ("MCounter".equals(newStatement.getType())) {
-                    newStatements.append(recordCounter(newStatement));
-                } else if ("MHistogram".equals(newStatement.getType())) {
-                    newStatements.append(JCTreeUtil.durationTime(treeMaker, names)).append(recordHistogram(newStatement));
-                }
+                newStatements.append(recordCounter(newStatement));
             }
             // 递归处理块语句，如 if、try-catch、for、while、switch 等
             if (statement instanceof JCTree.JCBlock) {
@@ -8,6 +8,8 @@ public class Statement {
     private String unit;
     private String description;
     private String[] attributes;
+    private double timeDivisor;
+    private boolean outcome;
 
     public String getVarName() {
         return varName;
@@ -57,6 +59,22 @@ public class Statement {
         this.attributes = attributes;
     }
 
+    public double getTimeDivisor() {
+        return timeDivisor;
+    }
+
+    public void setTimeDivisor(double timeDivisor) {
+        this.timeDivisor = timeDivisor;
+    }
+
+    public boolean isOutcome() {
+        return outcome;
+    }
+
+    public void setOutcome(boolean outcome) {
+        this.outcome = outcome;
+    }
+
     public String getType() {
         return type;
     }
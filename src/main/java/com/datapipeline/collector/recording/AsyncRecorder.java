@@ -0,0 +1,135 @@
+package com.datapipeline.collector.recording;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * 异步记录模式:业务线程只把 (目标 id, 值) 写入 {@link MpscRingBuffer},由单个后台线程批量取出并写入 SDK 指标,
+ * 业务线程不再竞争 SDK 内部每个序列的聚合器.
+ */
+public final class AsyncRecorder {
+    private static final Logger logger = Logger.getLogger(AsyncRecorder.class.getName());
+
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+
+    public enum OverflowPolicy {
+        /**
+         * 队列满时丢弃并计数
+         */
+        DROP,
+        /**
+         * 队列满时阻塞等待消费线程腾出空间
+         */
+        BLOCK
+    }
+
+    private final MpscRingBuffer buffer;
+    private final OverflowPolicy overflowPolicy;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder processed = new LongAdder();
+    private final Thread drainer;
+    private final Object lock = new Object();
+
+    private volatile RecordTarget[] targets = new RecordTarget[256];
+    private int targetCount;
+    private volatile boolean running = true;
+
+    public AsyncRecorder(int capacity, OverflowPolicy overflowPolicy) {
+        this.buffer = new MpscRingBuffer(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.drainer = new Thread(this::drainLoop, "AsyncRecorder");
+        this.drainer.setDaemon(true);
+        this.drainer.start();
+    }
+
+    /**
+     * 注册一个记录目标,返回其 id,同一目标只应注册一次
+     */
+    public int register(RecordTarget target) {
+        synchronized (lock) {
+            RecordTarget[] current = targets;
+            if (targetCount == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[targetCount] = target;
+            targets = current;
+            return targetCount++;
+        }
+    }
+
+    public void record(int target, long value) {
+        if (buffer.offer(target, value)) {
+            return;
+        }
+        if (overflowPolicy == OverflowPolicy.BLOCK) {
+            while (running) {
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                if (buffer.offer(target, value)) {
+                    return;
+                }
+            }
+        }
+        dropped.increment();
+    }
+
+    public void record(int target, double value) {
+        record(target, Double.doubleToRawLongBits(value));
+    }
+
+    public long getQueueDepth() {
+        return buffer.size();
+    }
+
+    public long getCapacity() {
+        return buffer.capacity();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * 停止接收新的记录,等待消费线程把队列中剩余的记录写入 SDK
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        LockSupport.unpark(drainer);
+        try {
+            drainer.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void drainLoop() {
+        MpscRingBuffer.SlotConsumer consumer = this::apply;
+        while (true) {
+            int count = buffer.drain(consumer, DRAIN_BATCH);
+            if (count > 0) {
+                processed.add(count);
+            } else if (running) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void apply(int target, long value) {
+        try {
+            targets[target].apply(value);
+        } catch (Throwable t) {
+            logger.log(Level.WARNING, "Async record failed", t);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.datapipeline.collector.recording;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 预分配的无锁多生产者单消费者环形队列,每个槽位只保存原始类型(目标 id 与 long 值),入队不产生任何分配.
+ *
+ * <p>基于 Dmitry Vyukov 的有界队列:每个槽位维护一个序号,生产者 CAS 推进写指针后写入槽位,
+ * 再以 release 语义发布序号;消费者看到序号后读取槽位并把序号推进一圈,使槽位可被再次写入.
+ */
+final class MpscRingBuffer {
+
+    interface SlotConsumer {
+        void accept(int target, long value);
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final int[] targets;
+    private final long[] values;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+
+    MpscRingBuffer(int requestedCapacity) {
+        int size = 2;
+        while (size < requestedCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.targets = new int[size];
+        this.values = new long[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * 入队,队列已满时返回 false
+     */
+    boolean offer(int target, long value) {
+        long position = tail.get();
+        for (; ; ) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    targets[index] = target;
+                    values[index] = value;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * 由唯一的消费线程调用,最多取出 limit 个元素,返回实际取出的数量
+     */
+    int drain(SlotConsumer consumer, int limit) {
+        long position = head.get();
+        int count = 0;
+        while (count < limit) {
+            int index = (int) position & mask;
+            if (sequences.get(index) != position + 1) {
+                break;
+            }
+            int target = targets[index];
+            long value = values[index];
+            sequences.lazySet(index, position + capacity);
+            position++;
+            count++;
+            consumer.accept(target, value);
+        }
+        head.lazySet(position);
+        return count;
+    }
+
+    int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
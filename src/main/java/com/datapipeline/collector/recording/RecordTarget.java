@@ -0,0 +1,12 @@
+package com.datapipeline.collector.recording;
+
+/**
+ * 异步记录的目标,通常是一个已绑定属性的指标句柄,由消费线程调用
+ */
+public interface RecordTarget {
+
+    /**
+     * 将一个值记录到 SDK,double 值以 {@link Double#doubleToRawLongBits(double)} 的形式传入
+     */
+    void apply(long value);
+}
@@ -10,9 +10,17 @@ import com.sun.tools.javac.util.List;
 import com.sun.tools.javac.util.Names;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
 
 public class JCTreeUtil {
 
+    public static final String START_NANOS = "$startNanos";
+    public static final String ERROR = "$error";
+    private static final String THROWABLE = "$throwable";
+
     public static JCTree.JCExpression makeTypeReference(TreeMaker treeMaker, Names names, String typeName) {
         String[] parts = typeName.split("\\.");
         JCTree.JCExpression expr = treeMaker.Ident(names.fromString(parts[0]));
@@ -22,53 +30,101 @@ public class JCTreeUtil {
         return expr;
     }
 
-    public static JCTree.JCVariableDecl durationTime(TreeMaker treeMaker, Names names) {
+    /**
+     * long $startNanos = System.nanoTime();
+     */
+    public static JCTree.JCVariableDecl beginTime(TreeMaker treeMaker, Names names) {
         return treeMaker.VarDef(treeMaker.Modifiers(0),
-                names.fromString("duration"),
+                names.fromString(START_NANOS),
                 treeMaker.TypeIdent(TypeTag.LONG),
-                treeMaker.Binary(JCTree.Tag.MINUS, treeMaker.Apply(
-                        List.nil(),
-                        treeMaker.Select(
-                                treeMaker.Ident(names.fromString("System")),
-                                names.fromString("currentTimeMillis")
-                        ),
-                        List.nil()
-                ), treeMaker.Ident(names.fromString("now"))));
+                nanoTime(treeMaker, names));
     }
 
-    public static JCTree.JCVariableDecl beginTime(TreeMaker treeMaker, Names names) {
-        return treeMaker.VarDef(treeMaker.Modifiers(0),
-                names.fromString("now"),
-                treeMaker.TypeIdent(TypeTag.LONG),
-                treeMaker.Apply(
-                        List.nil(),
-                        treeMaker.Select(
-                                treeMaker.Ident(names.fromString("System")),
-                                names.fromString("currentTimeMillis")
-                        ),
-                        List.nil()
-                ));
+    /**
+     * (System.nanoTime() - $startNanos) / divisor,divisor 为输出单位对应的纳秒数
+     */
+    public static JCTree.JCExpression elapsedTime(TreeMaker treeMaker, Names names, double divisor) {
+        JCTree.JCExpression elapsed = treeMaker.Parens(treeMaker.Binary(JCTree.Tag.MINUS, nanoTime(treeMaker, names), treeMaker.Ident(names.fromString(START_NANOS))));
+        return treeMaker.Binary(JCTree.Tag.DIV, elapsed, treeMaker.Literal(divisor));
+    }
+
+    /**
+     * 将方法体包裹为 try { body } finally { finalizer },outcome 为 true 时额外捕获异常记录到 $error 后原样抛出:
+     * <pre>
+     * Throwable $error = null;
+     * try { body } catch (Throwable $throwable) { $error = $throwable; throw $throwable; } finally { finalizer }
+     * </pre>
+     * 原方法中任意位置的 return 及抛出的异常都会经过 finally,因此异常路径同样被计时
+     */
+    public static List<JCTree.JCStatement> wrapTryFinally(TreeMaker treeMaker, Names names, List<JCTree.JCStatement> body,
+                                                        JCTree.JCStatement finalizer, boolean outcome) {
+        if (!outcome) {
+            return List.of(treeMaker.Try(treeMaker.Block(0, body), List.nil(), treeMaker.Block(0, List.of(finalizer))));
+        }
+        JCTree.JCVariableDecl error = treeMaker.VarDef(treeMaker.Modifiers(0), names.fromString(ERROR),
+                makeTypeReference(treeMaker, names, "java.lang.Throwable"), treeMaker.Literal(TypeTag.BOT, null));
+        JCTree.JCVariableDecl throwable = treeMaker.VarDef(treeMaker.Modifiers(0), names.fromString(THROWABLE),
+                makeTypeReference(treeMaker, names, "java.lang.Throwable"), null);
+        JCTree.JCBlock catchBlock = treeMaker.Block(0, List.of(
+                treeMaker.Exec(treeMaker.Assign(treeMaker.Ident(names.fromString(ERROR)), treeMaker.Ident(names.fromString(THROWABLE)))),
+                treeMaker.Throw(treeMaker.Ident(names.fromString(THROWABLE)))
+        ));
+        return List.of(error, treeMaker.Try(treeMaker.Block(0, body), List.of(treeMaker.Catch(throwable, catchBlock)), treeMaker.Block(0, List.of(finalizer))));
     }
 
-    public static JCTree.JCNewArray newArray(TreeMaker treeMaker, Names names, String[] attributes) {
-        JCTree.JCExpression elementType = treeMaker.Ident(names.fromString("String"));
-        JCTree.JCExpression[] attribute = new JCTree.JCExpression[attributes.length];
-        for (int i = 0; i < attributes.length; i++) {
-            attribute[i] = treeMaker.Literal(attributes[i]);
+    private static JCTree.JCMethodInvocation nanoTime(TreeMaker treeMaker, Names names) {
+        return treeMaker.Apply(List.nil(), makeTypeReference(treeMaker, names, "java.lang.System.nanoTime"), List.nil());
+    }
+
+    /**
+     * 将注解中的 "key=value" 属性在编译期构造为 {@code Attributes.builder().put(key, value)...build()} 表达式
+     */
+    public static JCTree.JCExpression newAttributes(TreeMaker treeMaker, Names names, String[] attributes) {
+        JCTree.JCExpression attributesType = makeTypeReference(treeMaker, names, "io.opentelemetry.api.common.Attributes");
+        if (attributes.length == 0) {
+            return treeMaker.Apply(List.nil(), treeMaker.Select(attributesType, names.fromString("empty")), List.nil());
+        }
+        JCTree.JCExpression builder = treeMaker.Apply(List.nil(), treeMaker.Select(attributesType, names.fromString("builder")), List.nil());
+        for (String attribute : attributes) {
+            int index = attribute.indexOf('=');
+            builder = treeMaker.Apply(
+                    List.nil(),
+                    treeMaker.Select(builder, names.fromString("put")),
+                    List.of(treeMaker.Literal(attribute.substring(0, index)), treeMaker.Literal(attribute.substring(index + 1)))
+            );
+        }
+        return treeMaker.Apply(List.nil(), treeMaker.Select(builder, names.fromString("build")), List.nil());
+    }
+
+    /**
+     * 校验注解属性是否都为 "key=value" 形式,返回第一个不合法的属性,全部合法时返回 null
+     */
+    public static String invalidAttribute(String[] attributes) {
+        for (String attribute : attributes) {
+            if (attribute.indexOf('=') <= 0) {
+                return attribute;
+            }
         }
-        List<JCTree.JCExpression> elements = List.from(attribute);
-        return treeMaker.NewArray(
-                elementType,
-                List.nil(),
-                elements
-        );
+        return null;
     }
 
-    public static void injectBeanMetricReporter(TreeMaker treeMaker, Names names, Element element, JavacTrees javacTrees) {
-        JCTree.JCClassDecl classDecl = (JCTree.JCClassDecl) javacTrees.getTree(element.getEnclosingElement());
-        JCTree.JCVariableDecl variableDecl = treeMaker.VarDef(treeMaker.Modifiers(Flags.PRIVATE), names.fromString("reporter"), JCTreeUtil.makeTypeReference(treeMaker, names, "com.datapipeline.collector.metric.MetricReporter"), null);
-        variableDecl.mods.annotations = variableDecl.mods.annotations.append(treeMaker.Annotation(JCTreeUtil.makeTypeReference(treeMaker, names, "org.springframework.beans.factory.annotation.Autowired"), List.nil()));
-        classDecl.defs = classDecl.getMembers().appendList(com.sun.tools.javac.util.List.of(variableDecl));
+    /**
+     * 在注解方法所在类中声明常量字段,顶层类及静态内部类中为 static final,其余(非静态内部类、局部类)为实例 final 字段
+     */
+    public static void injectConstantField(TreeMaker treeMaker, Names names, Element element, JavacTrees javacTrees,
+                                           String fieldName, String typeName, JCTree.JCExpression init) {
+        TypeElement classElement = (TypeElement) element.getEnclosingElement();
+        JCTree.JCClassDecl classDecl = javacTrees.getTree(classElement);
+        long flags;
+        if (classElement.getKind() == ElementKind.INTERFACE) {
+            flags = 0;
+        } else if (classElement.getNestingKind() == NestingKind.TOP_LEVEL || classElement.getModifiers().contains(Modifier.STATIC)) {
+            flags = Flags.PRIVATE | Flags.STATIC | Flags.FINAL;
+        } else {
+            flags = Flags.PRIVATE | Flags.FINAL;
+        }
+        JCTree.JCVariableDecl variableDecl = treeMaker.VarDef(treeMaker.Modifiers(flags), names.fromString(fieldName), makeTypeReference(treeMaker, names, typeName), init);
+        classDecl.defs = classDecl.getMembers().prepend(variableDecl);
     }
 
     public static int returnIndex(List<JCTree.JCStatement> statements) {
@@ -0,0 +1,101 @@
+package com.datapipeline.collector.metric;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.metrics.DoubleHistogram;
+import io.opentelemetry.api.metrics.LongCounter;
+import io.opentelemetry.api.metrics.Meter;
+import io.opentelemetry.sdk.metrics.SdkMeterProvider;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * JFR 事件流指标:对象分配、锁竞争、safepoint、线程 park 与 GC 暂停.
+ *
+ * <p>进程内打开 RecordingStream,事件在 JFR 的流线程上聚合到直方图与计数器,不记录调用栈.
+ * 对象分配使用 JDK 16 起的 ObjectAllocationSample 按速率限流采样,按样本权重累计估算的分配字节数;
+ * 锁竞争与线程 park 只记录超过 jfrThreshold 的事件.
+ */
+public class JfrEvents implements MBeanObservers, AutoCloseable {
+    private static final Logger logger = Logger.getLogger(JfrEvents.class.getName());
+
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String MONITOR_ENTER = "jdk.JavaMonitorEnter";
+    private static final String SAFEPOINT_BEGIN = "jdk.SafepointBegin";
+    private static final String THREAD_PARK = "jdk.ThreadPark";
+    private static final String GC_PHASE_PAUSE = "jdk.GCPhasePause";
+
+    private static final AttributeKey<String> PHASE = AttributeKey.stringKey("phase");
+
+    private final Duration threshold;
+    private final String allocationThrottle;
+    private final Map<String, Attributes> phaseAttributes = new ConcurrentHashMap<>();
+    private RecordingStream stream;
+
+    public JfrEvents(Config config) {
+        this.threshold = Duration.ofMillis(config.getJfrThreshold());
+        this.allocationThrottle = config.getJfrAllocationThrottle();
+    }
+
+    @Override
+    public void registerObservers(SdkMeterProvider sdk) {
+        Meter meter = sdk.meterBuilder(INSTRUMENTATION_NAME).build();
+        LongCounter allocated = meter.counterBuilder("process.runtime.jvm.memory.allocated")
+                .setDescription("Estimated bytes allocated, from sampled allocation events")
+                .setUnit("By")
+                .build();
+        DoubleHistogram monitorEnter = meter.histogramBuilder("process.runtime.jvm.monitor.enter.duration")
+                .setDescription("Time spent waiting to enter a contended monitor")
+                .setUnit("ms")
+                .build();
+        DoubleHistogram safepoint = meter.histogramBuilder("process.runtime.jvm.safepoint.duration")
+                .setDescription("Duration of safepoints")
+                .setUnit("ms")
+                .build();
+        DoubleHistogram threadPark = meter.histogramBuilder("process.runtime.jvm.thread.park.duration")
+                .setDescription("Time threads spent parked")
+                .setUnit("ms")
+                .build();
+        DoubleHistogram gcPause = meter.histogramBuilder("process.runtime.jvm.gc.pause.duration")
+                .setDescription("Duration of GC pause phases")
+                .setUnit("ms")
+                .build();
+        try {
+            RecordingStream stream = new RecordingStream();
+            stream.setMaxAge(Duration.ofMinutes(1));
+            stream.enable(ALLOCATION_SAMPLE).with("throttle", allocationThrottle).withoutStackTrace();
+            stream.enable(MONITOR_ENTER).withThreshold(threshold).withoutStackTrace();
+            stream.enable(SAFEPOINT_BEGIN).withoutStackTrace();
+            stream.enable(THREAD_PARK).withThreshold(threshold).withoutStackTrace();
+            stream.enable(GC_PHASE_PAUSE).withoutStackTrace();
+            stream.onEvent(ALLOCATION_SAMPLE, event -> allocated.add(event.getLong("weight")));
+            stream.onEvent(MONITOR_ENTER, event -> monitorEnter.record(millis(event)));
+            stream.onEvent(SAFEPOINT_BEGIN, event -> safepoint.record(millis(event)));
+            stream.onEvent(THREAD_PARK, event -> threadPark.record(millis(event)));
+            stream.onEvent(GC_PHASE_PAUSE, event -> gcPause.record(millis(event),
+                    phaseAttributes.computeIfAbsent(event.getString("name"), name -> Attributes.of(PHASE, name))));
+            stream.startAsync();
+            this.stream = stream;
+        } catch (RuntimeException e) {
+            // 例如 JFR 被 -XX:-FlightRecorder 禁用或缺少权限
+            logger.log(Level.WARNING, "Failed to start JFR event stream, JFR metrics are disabled", e);
+        }
+    }
+
+    private static double millis(RecordedEvent event) {
+        return event.getDuration().toNanos() / 1e6;
+    }
+
+    @Override
+    public void close() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.datapipeline.collector.failover
+
+import spock.lang.Specification
+
+import java.util.function.LongSupplier
+
+class CircuitBreakerSpec extends Specification {
+
+    long now = 1_000_000L
+    LongSupplier clock = { now } as LongSupplier
+
+    def "opens after consecutive failures and allows a single trial once the open time expires"() {
+        setup:
+        def breaker = new CircuitBreaker("local:4317", 2, 50, 500, clock)
+
+        when:
+        breaker.onFailure()
+
+        then:
+        breaker.state == CircuitBreaker.State.CLOSED
+        breaker.allowRequest()
+
+        when:
+        breaker.onFailure()
+
+        then: "第二次打开的时间在 [10, 20] 毫秒之间"
+        breaker.state == CircuitBreaker.State.OPEN
+        !breaker.allowRequest()
+
+        when:
+        now += 24
+
+        then: "打开时间在 [25, 50] 毫秒之间"
+        !breaker.allowRequest()
+
+        when:
+        now += 26
+
+        then:
+        breaker.allowRequest()
+        breaker.state == CircuitBreaker.State.HALF_OPEN
+        !breaker.allowRequest()
+
+        when:
+        breaker.onSuccess()
+
+        then:
+        breaker.state == CircuitBreaker.State.CLOSED
+        breaker.allowRequest()
+    }
+
+    def "a failed trial reopens the breaker"() {
+        setup:
+        def breaker = new CircuitBreaker("local:4317", 1, 10, 100, clock)
+        breaker.onFailure()
+        now += 10
+
+        when:
+        breaker.allowRequest()
+        breaker.onFailure()
+
+        then: "第二次打开的时间在 [10, 20] 毫秒之间"
+        breaker.state == CircuitBreaker.State.OPEN
+        !breaker.allowRequest()
+
+        when:
+        now += 20
+
+        then:
+        breaker.allowRequest()
+        breaker.state == CircuitBreaker.State.HALF_OPEN
+    }
+
+    def "backoff stays within half of the ceiling and the ceiling"() {
+        expect:
+        (0..<100).every {
+            def delay = Backoff.delay(100, 1000, attempt)
+            delay >= ceiling / 2 && delay <= ceiling
+        }
+
+        where:
+        attempt | ceiling
+        0       | 100
+        2       | 400
+        5       | 1000
+        40      | 1000
+    }
+}
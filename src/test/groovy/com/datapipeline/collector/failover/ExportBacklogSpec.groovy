@@ -0,0 +1,79 @@
+package com.datapipeline.collector.failover
+
+import io.opentelemetry.api.common.Attributes
+import io.opentelemetry.sdk.common.CompletableResultCode
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality
+import io.opentelemetry.sdk.metrics.data.MetricData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData
+import io.opentelemetry.sdk.resources.Resource
+import spock.lang.Specification
+
+class ExportBacklogSpec extends Specification {
+
+    static MetricData sum(AggregationTemporality temporality, long start, long end, Map<String, Long> values) {
+        def points = values.collect { k, v -> ImmutableLongPointData.create(start, end, Attributes.builder().put("k", k).build(), v) }
+        ImmutableMetricData.createLongSum(Resource.empty(), InstrumentationScopeInfo.empty(), "requests", "", "1",
+                ImmutableSumData.create(true, temporality, points))
+    }
+
+    static Map<String, Long> values(Collection<MetricData> metrics) {
+        metrics.collectMany { it.longSumData.points }.collectEntries { [(it.attributes.asMap().values().first()): it.value] }
+    }
+
+    def "first batch is exported immediately and later batches wait for next"() {
+        setup:
+        def backlog = new ExportBacklog(2)
+        def first = new CompletableResultCode()
+        def second = new CompletableResultCode()
+
+        expect:
+        backlog.offer([sum(AggregationTemporality.CUMULATIVE, 0, 1, [a: 1L])], first) != null
+        backlog.offer([sum(AggregationTemporality.CUMULATIVE, 0, 2, [a: 2L])], second) == null
+        backlog.size() == 1
+
+        when:
+        def batch = backlog.next()
+        batch.complete(true)
+
+        then:
+        values(batch.metricData) == [a: 2L]
+        second.isSuccess()
+        backlog.next() == null
+        backlog.offer([sum(AggregationTemporality.CUMULATIVE, 0, 3, [a: 3L])], new CompletableResultCode()) != null
+    }
+
+    def "full backlog keeps the newest cumulative point per series"() {
+        setup:
+        def backlog = new ExportBacklog(1)
+        def results = (0..<3).collect { new CompletableResultCode() }
+        backlog.offer([sum(AggregationTemporality.CUMULATIVE, 0, 1, [a: 1L])], results[0])
+        backlog.offer([sum(AggregationTemporality.CUMULATIVE, 0, 2, [a: 2L, b: 5L])], results[1])
+
+        when:
+        backlog.offer([sum(AggregationTemporality.CUMULATIVE, 0, 3, [a: 4L])], results[2])
+        def batch = backlog.next()
+        batch.complete(true)
+
+        then:
+        backlog.merged == 1
+        backlog.mergedPoints == 1
+        values(batch.metricData) == [a: 4L, b: 5L]
+        results[1].isSuccess()
+        results[2].isSuccess()
+    }
+
+    def "merging delta sums adds the values and widens the interval"() {
+        when:
+        def merged = MetricDataMerger.merge(
+                [sum(AggregationTemporality.DELTA, 0, 1, [a: 1L, b: 2L])],
+                [sum(AggregationTemporality.DELTA, 1, 2, [a: 3L])])
+
+        then:
+        values(merged) == [a: 4L, b: 2L]
+        merged.first().longSumData.points.find { it.value == 4L }.startEpochNanos == 0
+        merged.first().longSumData.points.find { it.value == 4L }.epochNanos == 2
+    }
+}
@@ -0,0 +1,44 @@
+package com.datapipeline.collector.failover
+
+import io.opentelemetry.sdk.common.CompletableResultCode
+import io.opentelemetry.sdk.metrics.InstrumentType
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality
+import io.opentelemetry.sdk.metrics.data.MetricData
+import io.opentelemetry.sdk.metrics.export.CollectionRegistration
+import io.opentelemetry.sdk.metrics.export.MetricReader
+import io.opentelemetry.sdk.metrics.internal.export.MetricProducer
+
+/**
+ * 测试用的 reader,按需采集一次 cumulative 数据
+ */
+class InMemoryReader implements MetricReader {
+    private volatile MetricProducer producer = MetricProducer.noop()
+
+    @Override
+    void register(CollectionRegistration registration) {
+        producer = MetricProducer.asMetricProducer(registration)
+    }
+
+    Collection<MetricData> collectAllMetrics() {
+        producer.collectAllMetrics()
+    }
+
+    MetricData metric(String name) {
+        collectAllMetrics().find { it.name == name }
+    }
+
+    @Override
+    AggregationTemporality getAggregationTemporality(InstrumentType instrumentType) {
+        AggregationTemporality.CUMULATIVE
+    }
+
+    @Override
+    CompletableResultCode forceFlush() {
+        CompletableResultCode.ofSuccess()
+    }
+
+    @Override
+    CompletableResultCode shutdown() {
+        CompletableResultCode.ofSuccess()
+    }
+}
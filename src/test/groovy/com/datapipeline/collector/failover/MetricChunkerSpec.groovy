@@ -0,0 +1,43 @@
+package com.datapipeline.collector.failover
+
+import io.opentelemetry.api.common.Attributes
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality
+import io.opentelemetry.sdk.metrics.data.MetricData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData
+import io.opentelemetry.sdk.resources.Resource
+import spock.lang.Specification
+
+class MetricChunkerSpec extends Specification {
+
+    static MetricData sum(String name, int series) {
+        def points = (0..<series).collect { ImmutableLongPointData.create(0, 1, Attributes.builder().put("series", "s" + it).build(), it) }
+        ImmutableMetricData.createLongSum(Resource.empty(), InstrumentationScopeInfo.empty(), name, "", "1",
+                ImmutableSumData.create(true, AggregationTemporality.CUMULATIVE, points))
+    }
+
+    def "small collections are exported as a single chunk"() {
+        setup:
+        def metrics = [sum("a", 10), sum("b", 10)]
+
+        expect:
+        MetricChunker.split(metrics, 1024 * 1024) == [metrics]
+        MetricChunker.split(metrics, 0) == [metrics]
+    }
+
+    def "large collections are split without losing or duplicating points"() {
+        setup:
+        def metrics = [sum("a", 100), sum("b", 1000), sum("c", 5)]
+        def limit = 4096
+
+        when:
+        def chunks = MetricChunker.split(metrics, limit)
+
+        then:
+        chunks.size() > 1
+        chunks.every { MetricChunker.estimate(it) <= limit }
+        chunks.flatten().groupBy { it.name }.collectEntries { k, v -> [(k): v.sum { it.data.points.size() }] } == [a: 100, b: 1000, c: 5]
+    }
+}
@@ -0,0 +1,114 @@
+package com.datapipeline.collector.failover
+
+import com.datapipeline.collector.metric.Config
+import com.datapipeline.collector.metric.ExportObservers
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.api.common.Attributes
+import io.opentelemetry.sdk.common.InstrumentationScopeInfo
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import io.opentelemetry.sdk.metrics.data.AggregationTemporality
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableLongPointData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableMetricData
+import io.opentelemetry.sdk.metrics.internal.data.ImmutableSumData
+import io.opentelemetry.sdk.resources.Resource
+import spock.lang.Specification
+
+class PipelineStatsSpec extends Specification {
+
+    static def sum(String name, int points) {
+        def data = (0..<points).collect { ImmutableLongPointData.create(0, 1, Attributes.builder().put("k", "v" + it).build(), it) }
+        ImmutableMetricData.createLongSum(Resource.empty(), InstrumentationScopeInfo.empty(), name, "", "1",
+                ImmutableSumData.create(true, AggregationTemporality.CUMULATIVE, data))
+    }
+
+    def "collections count metrics and points per group"() {
+        setup:
+        def stats = new PipelineStats("local:4317")
+
+        when:
+        stats.onCollect(PipelineStats.DEFAULT_GROUP, 1_000_000, [sum("a", 3), sum("b", 2)])
+        stats.onCollect("fast", 1_000_000, [sum("a", 1)])
+        stats.onCollect("fast", 1_000_000, [sum("a", 4)])
+
+        then:
+        stats.collections == 3
+        stats.collectedPoints == 10
+        stats.groups[PipelineStats.DEFAULT_GROUP].collections == 1
+        stats.groups[PipelineStats.DEFAULT_GROUP].lastMetrics == 2
+        stats.groups[PipelineStats.DEFAULT_GROUP].lastPoints == 5
+        stats.groups["fast"].collections == 2
+        stats.groups["fast"].lastPoints == 4
+    }
+
+    def "export durations are recorded per endpoint and outcome"() {
+        setup:
+        def reader = new InMemoryReader()
+        def sdk = SdkMeterProvider.builder().registerMetricReader(reader).build()
+        def meter = sdk.get("test")
+        def stats = new PipelineStats("local:4317")
+        stats.bind(meter.histogramBuilder("collect").build(), meter.histogramBuilder("export").build())
+
+        when:
+        stats.onExport("local:4317", 2_000_000, true)
+        stats.onExport("remote:4317", 4_000_000, false)
+
+        then:
+        stats.exports == 2
+        stats.exportNanos == 6_000_000
+        def points = reader.metric("export").histogramData.points
+        points.find { it.attributes.get(AttributeKey.stringKey("endpoint")) == "local:4317" }.sum == 2.0d
+        points.find { it.attributes.get(AttributeKey.stringKey("outcome")) == "error" }.sum == 4.0d
+
+        cleanup:
+        sdk.close()
+    }
+
+    def "switches count failovers and recoveries and track the active endpoint"() {
+        setup:
+        def stats = new PipelineStats("local:4317")
+
+        when:
+        stats.onSwitch("remote:4317", false)
+
+        then:
+        stats.failovers == 1
+        stats.recoveries == 0
+        stats.activeEndpoint == "remote:4317"
+
+        when:
+        stats.onSwitch("local:4317", true)
+
+        then:
+        stats.recoveries == 1
+        stats.activeEndpoint == "local:4317"
+    }
+
+    def "export observers publish the reader statistics"() {
+        setup:
+        def config = new Config()
+        config.endpoint = "localhost:4317"
+        def failover = FailoverMetricReader.builder(config).setHostname("localhost").build()
+        def reader = new InMemoryReader()
+        def sdk = SdkMeterProvider.builder().registerMetricReader(reader).build()
+        new ExportObservers(failover).registerObservers(sdk)
+
+        when:
+        failover.pipelineStats.onCollect(PipelineStats.DEFAULT_GROUP, 1_000_000, [sum("a", 3)])
+        failover.pipelineStats.onCollect("fast", 1_000_000, [sum("a", 2)])
+        failover.pipelineStats.onFailedChunk()
+        failover.pipelineStats.onSwitch("remote:4317", false)
+
+        then:
+        reader.metric("collector.sdk.collect.cycles").longSumData.points*.value == [1L, 1L]
+        reader.metric("collector.sdk.collect.series").longGaugeData.points
+                .collectEntries { [(it.attributes.get(AttributeKey.stringKey("group"))): it.value] } == [default: 3L, fast: 2L]
+        reader.metric("collector.sdk.export.failed").longSumData.points*.value == [1L]
+        reader.metric("collector.sdk.failover.events").longSumData.points
+                .find { it.attributes.get(AttributeKey.stringKey("type")) == "failover" }.value == 1
+        reader.metric("collector.sdk.endpoint.active").longSumData.points*.attributes*.get(AttributeKey.stringKey("endpoint")) == ["remote:4317"]
+
+        cleanup:
+        sdk.close()
+        failover.shutdown()
+    }
+}
@@ -0,0 +1,43 @@
+package com.datapipeline.collector.failover
+
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class SharedSchedulerSpec extends Specification {
+
+    static final long INTERVAL = TimeUnit.SECONDS.toNanos(30)
+
+    def "aligned cycles start on the next wall-clock boundary plus the offset"() {
+        expect:
+        SharedScheduler.initialDelayNanos(INTERVAL, nowMillis, true, TimeUnit.SECONDS.toNanos(offset), 0) ==
+                TimeUnit.SECONDS.toNanos(delay)
+
+        where:
+        nowMillis | offset || delay
+        61_000    | 0      || 29
+        61_000    | 5      || 4
+        61_000    | 20     || 19
+        // 距离目标时刻不足十分之一个周期时推迟一个周期
+        59_000    | 0      || 31
+    }
+
+    def "unaligned cycles start after one interval plus offset and jitter"() {
+        when:
+        def delay = SharedScheduler.initialDelayNanos(INTERVAL, 0, false, 100, 1000)
+
+        then:
+        delay >= INTERVAL + 100
+        delay < INTERVAL + 1100
+    }
+
+    def "spread offsets are stable per instance and fall inside the interval"() {
+        expect:
+        SharedScheduler.spreadOffsetNanos("pod-1", INTERVAL) == SharedScheduler.spreadOffsetNanos("pod-1", INTERVAL)
+        SharedScheduler.spreadOffsetNanos("pod-1", INTERVAL) != SharedScheduler.spreadOffsetNanos("pod-2", INTERVAL)
+        (1..100).every {
+            def offset = SharedScheduler.spreadOffsetNanos("pod-" + it, INTERVAL)
+            offset >= 0 && offset < INTERVAL
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.datapipeline.collector.failover
+
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class SpoolSegmentSpec extends Specification {
+
+    def "records are replayed in order and survive reopening"() {
+        setup:
+        def file = Files.createTempFile("segment", ".spool").toFile()
+        def segment = SpoolSegment.create(file, 1024)
+
+        when:
+        segment.append("a".bytes)
+        segment.append("bb".bytes)
+        segment.append("ccc".bytes)
+        segment.commit()
+        def reopened = SpoolSegment.open(file)
+
+        then:
+        new String(reopened.peek()) == "bb"
+        reopened.commit()
+        new String(reopened.peek()) == "ccc"
+        reopened.commit()
+        reopened.isEmpty()
+
+        cleanup:
+        file.delete()
+    }
+
+    def "append fails once the segment is full"() {
+        setup:
+        def file = Files.createTempFile("segment", ".spool").toFile()
+        def segment = SpoolSegment.create(file, SpoolSegment.HEADER_SIZE + SpoolSegment.RECORD_OVERHEAD + 4)
+
+        expect:
+        segment.append("abcd".bytes)
+        !segment.append("e".bytes)
+
+        cleanup:
+        file.delete()
+    }
+
+    def "reopening truncates a torn record and recovers from a torn header"() {
+        setup:
+        def file = Files.createTempFile("segment", ".spool").toFile()
+        def segment = SpoolSegment.create(file, 1024)
+        segment.append("first".bytes)
+        segment.append("second".bytes)
+        def raf = new RandomAccessFile(file, "rw")
+        // 模拟第二条记录写到一半、文件头校验失效时崩溃
+        raf.seek(SpoolSegment.HEADER_SIZE + SpoolSegment.RECORD_OVERHEAD + 5 + SpoolSegment.RECORD_OVERHEAD)
+        raf.write("XX".bytes)
+        raf.seek(16)
+        raf.writeLong(999999)
+        raf.close()
+
+        when:
+        def reopened = SpoolSegment.open(file)
+
+        then:
+        new String(reopened.peek()) == "first"
+        reopened.commit()
+        reopened.isEmpty()
+        reopened.append("third".bytes)
+        new String(reopened.peek()) == "third"
+
+        cleanup:
+        file.delete()
+    }
+}
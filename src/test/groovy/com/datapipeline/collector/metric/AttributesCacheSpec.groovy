@@ -0,0 +1,46 @@
+package com.datapipeline.collector.metric
+
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.api.common.Attributes
+import spock.lang.Specification
+
+class AttributesCacheSpec extends Specification {
+
+    def "same attribute content returns the same interned instance"() {
+        setup:
+        def cache = new AttributesCache(16)
+
+        when:
+        def first = cache.get(["task=1", "node=a"] as String[])
+        def second = cache.get(["task=1", "node=a"] as String[])
+
+        then:
+        first.is(second)
+        first.get(AttributeKey.stringKey("task")) == "1"
+        first.get(AttributeKey.stringKey("node")) == "a"
+        cache.getHits() == 1
+        cache.getMisses() == 1
+    }
+
+    def "value keeps everything after the first separator and malformed entries are skipped"() {
+        setup:
+        def cache = new AttributesCache(16)
+
+        expect:
+        cache.get(["sql=a=b", "broken"] as String[]) == Attributes.of(AttributeKey.stringKey("sql"), "a=b")
+        cache.get(new String[0]) == Attributes.empty()
+    }
+
+    def "cache stays bounded and counts evictions"() {
+        setup:
+        def cache = new AttributesCache(4)
+
+        when:
+        (0..<100).each { cache.get(["id=" + it] as String[]) }
+
+        then:
+        cache.getCapacity() == 4
+        cache.getMisses() == 100
+        cache.getEvictions() >= 96
+    }
+}
@@ -0,0 +1,23 @@
+package com.datapipeline.collector.metric
+
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.api.common.Attributes
+import spock.lang.Specification
+
+class CardinalityLimiterSpec extends Specification {
+
+    def "attribute sets beyond the limit are routed to the overflow series"() {
+        setup:
+        def limiter = new CardinalityLimiter("task.records", 2)
+        def key = AttributeKey.stringKey("table")
+
+        expect:
+        limiter.apply(Attributes.of(key, "a")) == Attributes.of(key, "a")
+        limiter.apply(Attributes.of(key, "b")) == Attributes.of(key, "b")
+        limiter.apply(Attributes.of(key, "c")).is(CardinalityLimiter.OVERFLOW)
+        limiter.apply(Attributes.of(key, "d")).is(CardinalityLimiter.OVERFLOW)
+        limiter.apply(Attributes.of(key, "a")) == Attributes.of(key, "a")
+        limiter.getCardinality() == 2
+        limiter.getOverflowed() == 2
+    }
+}
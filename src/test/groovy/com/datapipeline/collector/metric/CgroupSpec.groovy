@@ -0,0 +1,124 @@
+package com.datapipeline.collector.metric
+
+import com.datapipeline.collector.failover.InMemoryReader
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import io.opentelemetry.sdk.metrics.data.MetricData
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+class CgroupSpec extends Specification {
+
+    File root
+    InMemoryReader reader = new InMemoryReader()
+    SdkMeterProvider sdk = SdkMeterProvider.builder().registerMetricReader(reader).build()
+
+    def setup() {
+        root = Files.createTempDirectory("cgroup").toFile()
+    }
+
+    def cleanup() {
+        sdk.close()
+        root.deleteDir()
+    }
+
+    def write(String path, String content) {
+        def file = new File(root, path)
+        file.parentFile.mkdirs()
+        file.text = content
+    }
+
+    Map<String, MetricData> collect() {
+        reader.collectAllMetrics().collectEntries { [(it.name): it] }
+    }
+
+    static Map<String, Object> byType(MetricData metric, String key) {
+        metric.data.points.collectEntries { [(it.attributes.get(AttributeKey.stringKey(key))): it.value] }
+    }
+
+    def "cgroup v2 files are located through /proc/self/cgroup"() {
+        setup:
+        write("proc/cgroup", "0::/kubepods/pod1\n")
+        write("sys/cgroup.controllers", "cpu memory\n")
+        write("sys/kubepods/pod1/cpu.max", "50000 100000\n")
+        write("sys/kubepods/pod1/cpu.stat", "usage_usec 100\nnr_periods 10\nnr_throttled 2\nthrottled_usec 3000000\n")
+        write("sys/kubepods/pod1/memory.max", "1073741824\n")
+        write("sys/kubepods/pod1/memory.current", "500000\n")
+        write("sys/kubepods/pod1/memory.stat", "anon 1\nactive_file 7\ninactive_file 100000\n")
+        write("sys/kubepods/pod1/memory.events", "low 0\nhigh 0\nmax 4\noom 1\noom_kill 2\n")
+        write("sys/kubepods/pod1/cpu.pressure", "some avg10=0.00 avg60=0.00 avg300=0.00 total=1500000\n" +
+                "full avg10=0.00 avg60=0.00 avg300=0.00 total=500000\n")
+        new Cgroup(root.path + "/proc", root.path + "/sys").registerObservers(sdk)
+
+        when:
+        def metrics = collect()
+
+        then:
+        metrics["container.cpu.quota"].longSumData.points*.value == [50000L]
+        metrics["container.cpu.period"].longSumData.points*.value == [100000L]
+        metrics["container.cpu.periods"].longSumData.points*.value == [10L]
+        metrics["container.cpu.throttled_periods"].longSumData.points*.value == [2L]
+        metrics["container.cpu.throttled_time"].doubleSumData.points*.value == [3.0d]
+        metrics["container.memory.limit"].longSumData.points*.value == [1073741824L]
+        metrics["container.memory.usage"].longSumData.points*.value == [500000L]
+        metrics["container.memory.working_set"].longSumData.points*.value == [400000L]
+        byType(metrics["container.memory.oom_events"], "type") == [oom: 1L, oom_kill: 2L]
+        byType(metrics["container.cpu.pressure"], "stall") == [some: 1.5d, full: 0.5d]
+        !metrics.containsKey("container.memory.pressure")
+    }
+
+    def "cgroup v1 controllers are found under their mount directories"() {
+        setup:
+        write("proc/cgroup", "12:cpu,cpuacct:/\n11:memory:/\n0::/\n")
+        write("sys/cpu,cpuacct/cpu.cfs_quota_us", "-1\n")
+        write("sys/cpu,cpuacct/cpu.cfs_period_us", "100000\n")
+        write("sys/cpu,cpuacct/cpu.stat", "nr_periods 5\nnr_throttled 1\nthrottled_time 2000000000\n")
+        write("sys/memory/memory.limit_in_bytes", "9223372036854771712\n")
+        write("sys/memory/memory.usage_in_bytes", "1000\n")
+        write("sys/memory/memory.stat", "cache 600\ninactive_file 1\ntotal_inactive_file 400\n")
+        write("sys/memory/memory.oom_control", "oom_kill_disable 0\nunder_oom 0\noom_kill 3\n")
+        write("sys/unified/memory.pressure", "some avg10=0.00 avg60=0.00 avg300=0.00 total=2000000\n" +
+                "full avg10=0.00 avg60=0.00 avg300=0.00 total=1000000\n")
+        new Cgroup(root.path + "/proc", root.path + "/sys").registerObservers(sdk)
+
+        when:
+        def metrics = collect()
+
+        then: "未限制的 CPU 配额与内存上限不上报"
+        !metrics.containsKey("container.cpu.quota")
+        !metrics.containsKey("container.memory.limit")
+        metrics["container.cpu.period"].longSumData.points*.value == [100000L]
+        metrics["container.cpu.periods"].longSumData.points*.value == [5L]
+        metrics["container.cpu.throttled_time"].doubleSumData.points*.value == [2.0d]
+        metrics["container.memory.working_set"].longSumData.points*.value == [600L]
+        byType(metrics["container.memory.oom_events"], "type") == [oom_kill: 3L]
+        byType(metrics["container.memory.pressure"], "stall") == [some: 2.0d, full: 1.0d]
+    }
+
+    def "nothing is registered without a cgroup"() {
+        setup:
+        new Cgroup(root.path + "/proc", root.path + "/sys").registerObservers(sdk)
+
+        expect:
+        collect().isEmpty()
+    }
+
+    def "closed files are no longer reported"() {
+        setup:
+        write("proc/cgroup", "0::/\n")
+        write("sys/cgroup.controllers", "cpu memory\n")
+        write("sys/memory.current", "500000\n")
+        def cgroup = new Cgroup(root.path + "/proc", root.path + "/sys")
+        cgroup.registerObservers(sdk)
+
+        expect:
+        collect()["container.memory.usage"].longSumData.points*.value == [500000L]
+
+        when:
+        cgroup.close()
+
+        then:
+        collect().values().every { it.data.points.isEmpty() }
+    }
+}
@@ -15,6 +15,9 @@ class ConfigSpec extends Specification {
         config.setService("worker")
         config.setInterval(30)
         config.setTimeout(30)
+        config.setAttributesCacheSize(256)
+        config.setHistogramAggregation("exponential")
+        config.setExponentialHistograms(["task.*.latency"])
         expect: "Properties should be equal to the set values using getters"
         config.getAppName() == "example"
         config.getEndpoint() == "localhost:4137"
@@ -23,6 +26,21 @@ class ConfigSpec extends Specification {
         config.getService() == "worker"
         config.getInterval() == 30
         config.getTimeout() == 30
+        config.getAttributesCacheSize() == 256
+        config.getHistogramAggregation() == "exponential"
+        config.getExponentialHistograms() == ["task.*.latency"]
     }
 
+    def "test default values"() {
+        setup:
+        def config = new Config()
+        expect:
+        config.getRecording() == "sync"
+        config.getHistogramAggregation() == "explicit"
+        config.getExponentialHistograms().isEmpty()
+        config.getExponentialHistogramMaxScale() == 20
+        config.getExponentialHistogramMaxBuckets() == 160
+        config.getTemporality() == "cumulative"
+        !config.isSpoolEnabled()
+    }
 }
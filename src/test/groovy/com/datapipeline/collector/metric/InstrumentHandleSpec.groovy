@@ -0,0 +1,113 @@
+package com.datapipeline.collector.metric
+
+import com.datapipeline.collector.failover.InMemoryReader
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.api.common.Attributes
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import spock.lang.Specification
+
+import java.util.concurrent.TimeUnit
+
+class InstrumentHandleSpec extends Specification {
+
+    static final AttributeKey<String> TABLE = AttributeKey.stringKey("table")
+    static final Attributes ATTRIBUTES = Attributes.of(AttributeKey.stringKey("task"), "ingest")
+
+    InMemoryReader reader = new InMemoryReader()
+    MetricReporter reporter
+
+    def cleanup() {
+        reporter?.shutdown()
+    }
+
+    def "bound handles record into the series of their attributes"() {
+        setup:
+        init(new Config())
+        def counter = reporter.counter("task", "records", "1", "").bind(ATTRIBUTES)
+        def doubleCounter = reporter.doubleCounter("task", "bytes", "By", "").bind(ATTRIBUTES)
+        def histogram = reporter.histogram("task", "latency", "ms", "").bind(ATTRIBUTES)
+        def upDownCounter = reporter.upDownCounter("task", "pending", "1", "").bind(ATTRIBUTES)
+        def doubleUpDownCounter = reporter.doubleUpDownCounter("task", "buffered", "By", "").bind(ATTRIBUTES)
+
+        when:
+        counter.add(2)
+        counter.increment()
+        doubleCounter.add(1.5)
+        doubleCounter.add(1.5)
+        histogram.record(10)
+        histogram.record(30)
+        upDownCounter.add(5)
+        upDownCounter.add(-2)
+        doubleUpDownCounter.add(2.5)
+        doubleUpDownCounter.add(-1)
+
+        then:
+        counter.attributes == ATTRIBUTES
+        with(reader.metric("records").longSumData.points.first()) {
+            attributes == ATTRIBUTES
+            value == 3
+        }
+        with(reader.metric("bytes").doubleSumData.points.first()) {
+            attributes == ATTRIBUTES
+            value == 3.0d
+        }
+        with(reader.metric("latency").histogramData.points.first()) {
+            attributes == ATTRIBUTES
+            count == 2
+            sum == 40.0d
+        }
+        with(reader.metric("pending").longSumData) {
+            !monotonic
+            points.first().attributes == ATTRIBUTES
+            points.first().value == 3
+        }
+        with(reader.metric("buffered").doubleSumData) {
+            !monotonic
+            points.first().attributes == ATTRIBUTES
+            points.first().value == 1.5d
+        }
+    }
+
+    def "handles are cached per tag and metric"() {
+        setup:
+        init(new Config())
+
+        expect:
+        reporter.counter("task", "records", "1", "").is(reporter.counter("task", "records"))
+        !reporter.counter("task", "records").is(reporter.counter("task", "errors"))
+        !reporter.counter("task", "records").is(reporter.counter("job", "records"))
+        reporter.doubleCounter("task", "bytes").is(reporter.doubleCounter("task", "bytes"))
+        reporter.histogram("task", "latency").is(reporter.histogram("task", "latency"))
+        reporter.upDownCounter("task", "pending").is(reporter.upDownCounter("task", "pending"))
+        reporter.doubleUpDownCounter("task", "buffered").is(reporter.doubleUpDownCounter("task", "buffered"))
+    }
+
+    def "bound handles respect the cardinality limit in #recording mode"() {
+        setup:
+        def config = new Config()
+        config.recording = recording
+        config.cardinalityLimit = 2
+        init(config)
+        def handle = reporter.counter("task", "records", "1", "")
+
+        when:
+        def bounds = ["a", "b", "c", "d"].collect { handle.bind(Attributes.of(TABLE, it)) }
+        bounds*.increment()
+        handle.bind(Attributes.of(TABLE, "a")).increment()
+        // 异步模式下等待消费线程把队列中的记录写入 SDK
+        reporter.recorder?.shutdown(5, TimeUnit.SECONDS)
+
+        then:
+        bounds*.attributes == [Attributes.of(TABLE, "a"), Attributes.of(TABLE, "b"), CardinalityLimiter.OVERFLOW, CardinalityLimiter.OVERFLOW]
+        reader.metric("records").longSumData.points.collectEntries { [(it.attributes): it.value] } == [(Attributes.of(TABLE, "a")): 2L, (Attributes.of(TABLE, "b")): 1L, (CardinalityLimiter.OVERFLOW): 2L]
+        reporter.limiters.find { it.name == "task.records" }.overflowed == 2
+
+        where:
+        recording << ["sync", "async"]
+    }
+
+    private void init(Config config) {
+        reporter = new MetricReporter(config)
+        reporter.initEnv(SdkMeterProvider.builder().registerMetricReader(reader).build())
+    }
+}
@@ -0,0 +1,77 @@
+package com.datapipeline.collector.metric
+
+import com.datapipeline.collector.failover.FailoverMetricReader
+import io.opentelemetry.api.common.Attributes
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import spock.lang.Specification
+
+import java.util.concurrent.ScheduledExecutorService
+import java.util.concurrent.TimeUnit
+
+class MetricReporterGroupSpec extends Specification {
+
+    MetricReporter reporter
+
+    def setup() {
+        def fast = new Config.Group()
+        fast.prefixes = ["kafka"]
+        fast.interval = 5
+        def config = new Config()
+        config.endpoint = "127.0.0.1:4317"
+        config.timeout = 1
+        config.temporality = "delta"
+        config.cardinalityLimit = 10
+        config.groups = [fast: fast]
+        reporter = new MetricReporter(config)
+        reporter.initEnv()
+    }
+
+    def cleanup() {
+        reporter.shutdown()
+    }
+
+    def "meters are routed to the provider of the group whose prefix matches"() {
+        expect:
+        reporter.group("kafka.consumer") == "fast"
+        reporter.group("jdbc") == ""
+        reporter.provider("kafka.consumer").is(reporter.groupSdks["fast"])
+        reporter.provider("jdbc").is(reporter.sdk)
+        !reporter.groupSdks["fast"].is(reporter.sdk)
+    }
+
+    def "a group collection only resets the limiters of that group"() {
+        setup:
+        def kafka = reporter.counter("kafka", "records", "1", "")
+        def jdbc = reporter.counter("jdbc", "queries", "1", "")
+        (0..<3).each {
+            kafka.add(1, Attributes.builder().put("partition", it).build())
+            jdbc.add(1, Attributes.builder().put("table", "t" + it).build())
+        }
+
+        when:
+        reporter.groupSdks["fast"].forceFlush()
+
+        then:
+        reporter.limiters.find { it.name == "kafka.records" }.cardinality == 0
+        reporter.limiters.find { it.name == "jdbc.queries" }.cardinality == 3
+    }
+
+    def "a group reader collects on the group interval"() {
+        setup:
+        def executor = Mock(ScheduledExecutorService)
+        def config = new Config()
+        config.endpoint = "127.0.0.1:4317"
+        def reader = FailoverMetricReader.builder(config).setHostname("127.0.0.1")
+                .setInterval(30, TimeUnit.SECONDS).setExecutor(executor).build()
+
+        when:
+        def sdk = SdkMeterProvider.builder().registerMetricReader(reader.newGroupReader("fast", 5, TimeUnit.SECONDS, null)).build()
+
+        then:
+        1 * executor.scheduleAtFixedRate(_, _, TimeUnit.SECONDS.toNanos(5), TimeUnit.NANOSECONDS)
+
+        cleanup:
+        sdk?.close()
+        reader.shutdown()
+    }
+}
@@ -0,0 +1,84 @@
+package com.datapipeline.collector.metric
+
+import com.datapipeline.collector.failover.InMemoryReader
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import spock.lang.Requires
+import spock.lang.Specification
+
+import java.nio.file.Files
+
+@Requires({ os.linux })
+class ProcFsSpec extends Specification {
+
+    File proc
+    InMemoryReader reader = new InMemoryReader()
+    SdkMeterProvider sdk = SdkMeterProvider.builder().registerMetricReader(reader).build()
+
+    def setup() {
+        proc = Files.createTempDirectory("proc").toFile()
+        // utime 与 stime 为第 14、15 个字段,进程名中包含空格与括号
+        new File(proc, "stat").text = "42 (my (java)) S 1 42 42 0 -1 4194560 100 0 0 0 250 50 0 0 20 0 30 0\n"
+        new File(proc, "status").text = "Name:\tjava\nVmRSS:\t    2048 kB\nvoluntary_ctxt_switches:\t1\n"
+        new File(proc, "io").text = "rchar: 1\nwchar: 2\nread_bytes: 4096\nwrite_bytes: 8192\n"
+        new File(proc, "limits").text = "Limit                     Soft Limit           Hard Limit           Units\n" +
+                "Max open files            1024                 4096                 files\n"
+        new File(proc, "fd").mkdir()
+        (0..<3).each { new File(proc, "fd/" + it).createNewFile() }
+        task(1, 10, 1)
+        task(2, 20, 2)
+    }
+
+    def cleanup() {
+        sdk.close()
+        proc.deleteDir()
+    }
+
+    def task(int tid, long voluntary, long involuntary) {
+        def dir = new File(proc, "task/" + tid)
+        dir.mkdirs()
+        new File(dir, "status").text = "Name:\tjava\nvoluntary_ctxt_switches:\t${voluntary}\nnonvoluntary_ctxt_switches:\t${involuntary}\n"
+    }
+
+    Map<String, Long> switches() {
+        reader.metric("process.context_switches").longSumData.points
+                .collectEntries { [(it.attributes.get(AttributeKey.stringKey("type"))): it.value] }
+    }
+
+    def "process metrics are parsed from the proc files"() {
+        setup:
+        new ProcFs(proc.path).registerObservers(sdk)
+
+        when:
+        def metrics = reader.collectAllMetrics().collectEntries { [(it.name): it] }
+
+        then:
+        metrics["process.cpu.time"].doubleSumData.points*.value.sort() == [0.5d, 2.5d]
+        metrics["process.memory.usage"].longSumData.points*.value == [2048L * 1024]
+        metrics["process.disk.io"].longSumData.points*.value.sort() == [4096L, 8192L]
+        metrics["process.open_file_descriptors"].longSumData.points*.value == [2L]
+        metrics["process.open_file_descriptors.limit"].longSumData.points*.value == [1024L]
+    }
+
+    def "context switches of exited threads are kept"() {
+        setup:
+        new ProcFs(proc.path).registerObservers(sdk)
+
+        expect:
+        switches() == [voluntary: 30L, involuntary: 3L]
+
+        when: "线程 2 退出,线程 1 继续切换,新线程 3 启动"
+        new File(proc, "task/2").deleteDir()
+        task(1, 15, 1)
+        task(3, 4, 4)
+
+        then:
+        switches() == [voluntary: 39L, involuntary: 7L]
+
+        when: "线程号 1 被新线程复用,计数从头开始"
+        task(1, 2, 0)
+
+        then:
+        switches() == [voluntary: 41L, involuntary: 7L]
+    }
+}
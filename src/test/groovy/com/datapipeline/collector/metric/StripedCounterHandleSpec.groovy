@@ -0,0 +1,110 @@
+package com.datapipeline.collector.metric
+
+import com.datapipeline.collector.failover.InMemoryReader
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.api.common.Attributes
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import io.opentelemetry.sdk.metrics.data.MetricDataType
+import spock.lang.Specification
+
+import java.util.concurrent.CountDownLatch
+
+class StripedCounterHandleSpec extends Specification {
+
+    static final Attributes ATTRIBUTES = Attributes.of(AttributeKey.stringKey("task"), "ingest")
+    static final int THREADS = 8
+    static final int ADDS = 10_000
+
+    InMemoryReader reader = new InMemoryReader()
+    MetricReporter reporter = new MetricReporter(new Config())
+
+    def setup() {
+        reporter.initEnv(SdkMeterProvider.builder().registerMetricReader(reader).build())
+    }
+
+    def cleanup() {
+        reporter.shutdown()
+    }
+
+    def "adds from several threads are folded into the collected sums"() {
+        setup:
+        def counter = reporter.stripedCounter("task", "records", "1", "")
+        def doubleCounter = reporter.stripedDoubleCounter("task", "bytes", "By", "")
+
+        when:
+        concurrently {
+            def bound = counter.bind(ATTRIBUTES)
+            ADDS.times {
+                bound.increment()
+                counter.add(2)
+                doubleCounter.add(0.5, ATTRIBUTES)
+            }
+        }
+
+        then:
+        with(reader.metric("records").longSumData) {
+            monotonic
+            points.find { it.attributes == ATTRIBUTES }.value == THREADS * ADDS
+            points.find { it.attributes == Attributes.empty() }.value == 2L * THREADS * ADDS
+        }
+        with(reader.metric("bytes").doubleSumData) {
+            monotonic
+            points.find { it.attributes == ATTRIBUTES }.value == 0.5d * THREADS * ADDS
+        }
+    }
+
+    def "collecting reports the running total without resetting the local adders"() {
+        setup:
+        def bound = reporter.stripedCounter("task", "records", "1", "").bind(ATTRIBUTES)
+
+        when:
+        bound.add(3)
+        def first = reader.metric("records").longSumData.points.first().value
+        bound.add(4)
+        def second = reader.metric("records").longSumData.points.first().value
+
+        then:
+        first == 3
+        second == 7
+    }
+
+    def "striped up-down counters stay apart from monotonic ones with the same tag and metric"() {
+        setup:
+        def counter = reporter.stripedCounter("task", "flow", "1", "")
+        def upDownCounter = reporter.stripedUpDownCounter("task", "flow", "1", "")
+        def doubleCounter = reporter.stripedDoubleCounter("task", "volume", "By", "")
+        def doubleUpDownCounter = reporter.stripedDoubleUpDownCounter("task", "volume", "By", "")
+
+        when:
+        counter.add(5, ATTRIBUTES)
+        upDownCounter.add(5, ATTRIBUTES)
+        upDownCounter.add(-3, ATTRIBUTES)
+        doubleCounter.add(1.5, ATTRIBUTES)
+        doubleUpDownCounter.add(1.5, ATTRIBUTES)
+        doubleUpDownCounter.add(-1.0, ATTRIBUTES)
+        // 同名不同类型的指标 SDK 会告警,但两者都会被采集
+        def flow = reader.collectAllMetrics().findAll { it.name == "flow" && it.type == MetricDataType.LONG_SUM }
+        def volume = reader.collectAllMetrics().findAll { it.name == "volume" && it.type == MetricDataType.DOUBLE_SUM }
+
+        then:
+        !upDownCounter.is(counter)
+        !doubleUpDownCounter.is(doubleCounter)
+        reporter.stripedCounter("task", "flow", "1", "").is(counter)
+        reporter.stripedUpDownCounter("task", "flow", "1", "").is(upDownCounter)
+        reporter.instrumentCount == 4
+        flow.collectEntries { [(it.longSumData.monotonic): it.longSumData.points.first().value] } == [(true): 5L, (false): 2L]
+        volume.collectEntries { [(it.doubleSumData.monotonic): it.doubleSumData.points.first().value] } == [(true): 1.5d, (false): 0.5d]
+    }
+
+    private static void concurrently(Closure work) {
+        def start = new CountDownLatch(1)
+        def threads = (0..<THREADS).collect {
+            Thread.start {
+                start.await()
+                work()
+            }
+        }
+        start.countDown()
+        threads*.join()
+    }
+}
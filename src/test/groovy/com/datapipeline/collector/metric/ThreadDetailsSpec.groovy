@@ -0,0 +1,94 @@
+package com.datapipeline.collector.metric
+
+import com.datapipeline.collector.failover.InMemoryReader
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import spock.lang.Specification
+
+import java.lang.management.ManagementFactory
+import java.lang.management.ThreadMXBean
+import java.util.concurrent.CountDownLatch
+
+class ThreadDetailsSpec extends Specification {
+
+    def "digits in thread names are normalized to pool names"() {
+        expect:
+        ThreadDetails.normalize(name) == pool
+
+        where:
+        name                          | pool
+        "pool-3-thread-7"             | "pool-N-thread-N"
+        "http-nio-8080-exec-12"       | "http-nio-N-exec-N"
+        "main"                        | "main"
+        "42"                          | "N"
+        "kafka-producer-network-th1"  | "kafka-producer-network-thN"
+    }
+
+    def "a truncated scan reuses the cached values of threads it did not reach"() {
+        setup:
+        def real = ManagementFactory.threadMXBean
+        def exit = (0..<3).collect { new CountDownLatch(1) }
+        def threads = (0..<300).collect { i ->
+            def thread = new Thread({ exit[i % 3].await() }, "spec-worker-" + i)
+            thread.daemon = true
+            thread.start()
+            thread
+        }
+        List<Long> ids = threads*.id
+        while (threads.any { it.state != Thread.State.WAITING }) {
+            Thread.sleep(1)
+        }
+        def bean = Stub(ThreadMXBean) {
+            getAllThreadIds() >> { ids as long[] }
+            getThreadInfo(_ as long[], 0) >> { long[] batch, int depth -> real.getThreadInfo(batch, depth) }
+        }
+        def reader = new InMemoryReader()
+        def sdk = SdkMeterProvider.builder().registerMetricReader(reader).build()
+        // 预算为 0,每个周期只扫描一批 256 个线程
+        new ThreadDetails(bean, false, 0, 0).registerObservers(sdk)
+
+        when:
+        def first = collect(reader)
+
+        then:
+        first.truncated == 1
+        first.waiting == 256
+        first.waited == waited(real, ids.take(256))
+
+        when:
+        def second = collect(reader)
+
+        then: "第二个周期从第 256 个线程继续,之前扫描过的线程沿用缓存"
+        second.truncated == 2
+        second.waiting == 300
+        second.waited == waited(real, ids)
+
+        when: "三分之一的线程退出"
+        exit[0].countDown()
+        threads.findAll { it.name.split("-")[2].toInteger() % 3 == 0 }*.join()
+        ids = threads.findAll { it.alive }*.id
+        def third = collect(reader)
+
+        then: "已退出线程的次数仍然计入"
+        third.waiting == 200
+        third.waited >= second.waited
+
+        cleanup:
+        exit*.countDown()
+        sdk.close()
+    }
+
+    static Map<String, Long> collect(InMemoryReader reader) {
+        def metrics = reader.collectAllMetrics().collectEntries { [(it.name): it] }
+        [
+                truncated: metrics["process.runtime.jvm.threads.scan.truncated"].longSumData.points.first().value,
+                waiting  : metrics["process.runtime.jvm.threads.states"].longSumData.points
+                        .find { it.attributes.get(AttributeKey.stringKey("state")) == "waiting" }.value,
+                waited   : metrics["process.runtime.jvm.threads.waited.count"].longSumData.points.first().value
+        ]
+    }
+
+    static long waited(ThreadMXBean bean, List<Long> ids) {
+        bean.getThreadInfo(ids as long[], 0).sum { it.waitedCount } as long
+    }
+}
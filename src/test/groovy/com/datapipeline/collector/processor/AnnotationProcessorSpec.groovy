@@ -0,0 +1,350 @@
+package com.datapipeline.collector.processor
+
+import com.datapipeline.collector.failover.InMemoryReader
+import com.datapipeline.collector.metric.Config
+import com.datapipeline.collector.metric.GlobalMetricReporter
+import com.datapipeline.collector.metric.LazyBoundCounter
+import com.datapipeline.collector.metric.LazyBoundHistogram
+import com.datapipeline.collector.metric.MetricReporter
+import io.opentelemetry.api.common.AttributeKey
+import io.opentelemetry.api.common.Attributes
+import io.opentelemetry.sdk.metrics.SdkMeterProvider
+import io.opentelemetry.sdk.metrics.data.HistogramPointData
+import spock.lang.Specification
+
+import javax.tools.Diagnostic
+import javax.tools.DiagnosticCollector
+import javax.tools.JavaFileObject
+import javax.tools.SimpleJavaFileObject
+import javax.tools.ToolProvider
+import java.lang.reflect.Modifier
+import java.nio.file.Files
+
+class AnnotationProcessorSpec extends Specification {
+
+    static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome")
+    static final AttributeKey<String> EXCEPTION = AttributeKey.stringKey("exception")
+
+    static final String TIMED = """
+package fixture;
+
+import com.datapipeline.collector.annotation.MHistogram;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class Timed {
+    public int calls;
+
+    @MHistogram(tag = "fixture", metric = "void.latency")
+    public void run() {
+        calls++;
+    }
+
+    @MHistogram(tag = "fixture", metric = "value.latency")
+    public int value() {
+        return ++calls;
+    }
+
+    @MHistogram(tag = "fixture", metric = "early.latency")
+    public String early(boolean skip) {
+        if (skip) {
+            return "skipped";
+        }
+        calls++;
+        return "done";
+    }
+
+    @MHistogram(tag = "fixture", metric = "sleep.latency", timeUnit = TimeUnit.MICROSECONDS)
+    public void sleep() throws InterruptedException {
+        Thread.sleep(20);
+    }
+
+    @MHistogram(tag = "fixture", metric = "load.latency", outcome = true)
+    public String load(boolean fail) throws IOException {
+        if (fail) {
+            throw new IOException("unavailable");
+        }
+        return "loaded";
+    }
+}
+"""
+
+    static final String COUNTED = """
+package fixture;
+
+import com.datapipeline.collector.annotation.MCounter;
+
+public class Counted {
+    @MCounter(tag = "fixture", metric = "counted.calls", attribute = {"task=ingest"})
+    public void call() {
+    }
+
+    public class Inner {
+        @MCounter(tag = "fixture", metric = "inner.calls")
+        public void call() {
+        }
+    }
+
+    public static class Nested {
+        @MCounter(tag = "fixture", metric = "nested.calls")
+        public void call() {
+        }
+    }
+}
+"""
+
+    static final String BOTH = """
+package fixture;
+
+import com.datapipeline.collector.annotation.MCounter;
+import com.datapipeline.collector.annotation.MHistogram;
+
+public class Both {
+    @MCounter(tag = "fixture", metric = "both.calls")
+    public int call() {
+        return 1;
+    }
+
+    @MHistogram(tag = "fixture", metric = "both.latency")
+    public void time() {
+    }
+}
+"""
+
+    static final String ATTRIBUTED = """
+package fixture;
+
+import com.datapipeline.collector.annotation.MCounter;
+import com.datapipeline.collector.annotation.MHistogram;
+
+public class Attributed {
+    @MCounter(tag = "fixture", metric = "attributed.calls", attribute = {"task=ingest", "filter=a=b"})
+    public void call() {
+    }
+
+    @MHistogram(tag = "fixture", metric = "plain.latency")
+    public void time() {
+    }
+}
+"""
+
+    static final String MALFORMED = """
+package fixture;
+
+import com.datapipeline.collector.annotation.MCounter;
+import com.datapipeline.collector.annotation.MHistogram;
+
+public class Malformed {
+    @MCounter(tag = "fixture", metric = "malformed.calls", attribute = {"task=ingest", "k"})
+    public void call() {
+    }
+
+    @MHistogram(tag = "fixture", metric = "malformed.latency", attribute = {"=v"})
+    public void time() {
+    }
+}
+"""
+
+    InMemoryReader reader
+    MetricReporter reporter
+
+    def setup() {
+        reader = new InMemoryReader()
+        reporter = new MetricReporter(new Config())
+        reporter.initEnv(SdkMeterProvider.builder().registerMetricReader(reader).build())
+    }
+
+    def cleanup() {
+        reporter.shutdown()
+        GlobalMetricReporter.set(null)
+    }
+
+    def "void and non-void methods record one sample per call"() {
+        setup:
+        def timed = compile(["fixture.Timed": TIMED]).newInstance("fixture.Timed")
+
+        when:
+        timed.run()
+        def value = timed.value()
+
+        then:
+        value == 2
+        point("void.latency").count == 1
+        point("value.latency").count == 1
+    }
+
+    def "an early return is timed as well"() {
+        setup:
+        def timed = compile(["fixture.Timed": TIMED]).newInstance("fixture.Timed")
+
+        expect:
+        timed.early(true) == "skipped"
+        timed.early(false) == "done"
+        timed.calls == 1
+        point("early.latency").count == 2
+    }
+
+    def "the elapsed nanos are divided by timeUnit and the unit follows it"() {
+        setup:
+        def timed = compile(["fixture.Timed": TIMED]).newInstance("fixture.Timed")
+
+        when:
+        timed.sleep()
+        timed.run()
+
+        then:
+        point("sleep.latency").sum >= 20_000
+        reader.metric("sleep.latency").unit == "us"
+        reader.metric("void.latency").unit == "ms"
+    }
+
+    def "a declared checked exception is rethrown and recorded as an error outcome"() {
+        setup:
+        def timed = compile(["fixture.Timed": TIMED]).newInstance("fixture.Timed")
+        timed.load(false)
+
+        when:
+        timed.load(true)
+
+        then:
+        def e = thrown(IOException)
+        e.message == "unavailable"
+        point("load.latency", Attributes.of(OUTCOME, "success")).count == 1
+        point("load.latency", Attributes.of(OUTCOME, "error", EXCEPTION, "java.io.IOException")).count == 1
+    }
+
+    def "top-level and static nested classes get a static lazy counter field"() {
+        setup:
+        def compilation = compile(["fixture.Counted": COUNTED])
+
+        expect:
+        with(compilation.load("fixture.Counted").getDeclaredField('$metricCounter0')) {
+            type == LazyBoundCounter
+            Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers) && Modifier.isPrivate(modifiers)
+        }
+        with(compilation.load('fixture.Counted$Nested').getDeclaredField('$metricCounter0')) {
+            type == LazyBoundCounter
+            Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)
+        }
+    }
+
+    def "inner classes get an instance field since they cannot declare statics"() {
+        setup:
+        def compilation = compile(["fixture.Counted": COUNTED])
+
+        expect:
+        with(compilation.load('fixture.Counted$Inner').getDeclaredField('$metricCounter0')) {
+            type == LazyBoundCounter
+            !Modifier.isStatic(modifiers) && Modifier.isFinal(modifiers)
+        }
+    }
+
+    def "fields are numbered per class across both annotations"() {
+        setup:
+        def fields = compile(["fixture.Both": BOTH]).load("fixture.Both").declaredFields.findAll { it.name.startsWith('$metric') }
+
+        expect:
+        fields.collect { it.name.replaceAll(/\d+$/, "") } as Set == ['$metricCounter', '$metricHistogram'] as Set
+        fields.collect { it.name.replaceAll(/^\D+/, "") } as Set == ["0", "1"] as Set
+        fields.find { it.name.startsWith('$metricCounter') }.type == LazyBoundCounter
+        fields.find { it.name.startsWith('$metricHistogram') }.type == LazyBoundHistogram
+    }
+
+    def "generated fields record into the reporter registered in GlobalMetricReporter"() {
+        setup:
+        def compilation = compile(["fixture.Counted": COUNTED, "fixture.Both": BOTH])
+        def counted = compilation.newInstance("fixture.Counted")
+        def both = compilation.newInstance("fixture.Both")
+
+        when:
+        counted.call()
+        counted.call()
+        compilation.load('fixture.Counted$Inner').newInstance(counted).call()
+        compilation.newInstance('fixture.Counted$Nested').call()
+        both.call()
+        both.time()
+
+        then:
+        sum("counted.calls", Attributes.of(AttributeKey.stringKey("task"), "ingest")) == 2
+        sum("inner.calls") == 1
+        sum("nested.calls") == 1
+        sum("both.calls") == 1
+        point("both.latency").count == 1
+    }
+
+    def "annotation attributes are built at compile time, splitting on the first '='"() {
+        setup:
+        def attributed = compile(["fixture.Attributed": ATTRIBUTED]).newInstance("fixture.Attributed")
+
+        when:
+        attributed.call()
+        attributed.time()
+
+        then:
+        sum("attributed.calls", Attributes.of(AttributeKey.stringKey("task"), "ingest", AttributeKey.stringKey("filter"), "a=b")) == 1
+        point("plain.latency").attributes == Attributes.empty()
+    }
+
+    def "an attribute without key=value form is a compile error"() {
+        when:
+        def compilation = compile(["fixture.Malformed": MALFORMED])
+
+        then:
+        !compilation.success
+        compilation.errors() as Set == ["attribute must be in key=value form: k", "attribute must be in key=value form: =v"] as Set
+    }
+
+    long sum(String metric, Attributes attributes = Attributes.empty()) {
+        reader.metric(metric).longSumData.points.find { it.attributes == attributes }.value
+    }
+
+    HistogramPointData point(String metric, Attributes attributes = Attributes.empty()) {
+        reader.metric(metric).histogramData.points.find { it.attributes == attributes }
+    }
+
+    /**
+     * 用注解处理器编译 fixture 源码,编译结果由以当前类加载器为父的 ClassLoader 加载,生成代码与 spec 共享 GlobalMetricReporter
+     */
+    static Compilation compile(Map<String, String> sources) {
+        def diagnostics = new DiagnosticCollector<JavaFileObject>()
+        def output = Files.createTempDirectory("processor").toFile()
+        def units = sources.collect { name, code ->
+            new SimpleJavaFileObject(URI.create("string:///" + name.replace('.', '/') + ".java"), JavaFileObject.Kind.SOURCE) {
+                @Override
+                CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                    code
+                }
+            }
+        }
+        def task = ToolProvider.systemJavaCompiler.getTask(null, null, diagnostics,
+                ["-d", output.path, "-classpath", System.getProperty("java.class.path")], null, units)
+        task.processors = [new AnnotationProcessor()]
+        boolean success = task.call()
+        new Compilation(success, diagnostics.diagnostics, new URLClassLoader([output.toURI().toURL()] as URL[], AnnotationProcessorSpec.classLoader))
+    }
+
+    static class Compilation {
+        final boolean success
+        final List<Diagnostic<? extends JavaFileObject>> diagnostics
+        final ClassLoader classLoader
+
+        Compilation(boolean success, List<Diagnostic<? extends JavaFileObject>> diagnostics, ClassLoader classLoader) {
+            this.success = success
+            this.diagnostics = diagnostics
+            this.classLoader = classLoader
+        }
+
+        Class<?> load(String name) {
+            assert success: diagnostics.join("\n")
+            classLoader.loadClass(name)
+        }
+
+        Object newInstance(String name) {
+            load(name).newInstance()
+        }
+
+        List<String> errors() {
+            diagnostics.findAll { it.kind == Diagnostic.Kind.ERROR }*.getMessage(Locale.ROOT)
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.datapipeline.collector.recording
+
+import spock.lang.Specification
+
+class MpscRingBufferSpec extends Specification {
+
+    def "offer fails once the buffer is full and succeeds again after draining"() {
+        setup:
+        def buffer = new MpscRingBuffer(4)
+        def drained = []
+
+        expect:
+        (0..<4).every { buffer.offer(it, it * 10L) }
+        !buffer.offer(9, 90L)
+        buffer.size() == 4
+
+        when:
+        def count = buffer.drain({ int target, long value -> drained << [target, value] } as MpscRingBuffer.SlotConsumer, 2)
+
+        then:
+        count == 2
+        drained == [[0, 0L], [1, 10L]]
+        buffer.offer(4, 40L)
+        buffer.size() == 3
+    }
+
+    def "concurrent producers never lose a value"() {
+        setup:
+        def buffer = new MpscRingBuffer(1024)
+        def sum = 0L
+        def consumer = { int target, long value -> sum += value } as MpscRingBuffer.SlotConsumer
+
+        when:
+        def producers = (0..<4).collect {
+            Thread.start {
+                for (int i = 0; i < 10000; i++) {
+                    while (!buffer.offer(0, 1L)) {
+                        Thread.yield()
+                    }
+                }
+            }
+        }
+        while (producers.any { it.isAlive() } || buffer.size() > 0) {
+            buffer.drain(consumer, 256)
+        }
+
+        then:
+        sum == 40000L
+    }
+}